@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code CatalogueFootprint} measures the heap taken by a synthetic catalogue in the structures
+ * of {@link ProductManager} (products map, id index, rating summaries and published snapshot),
+ * then in a {@link CompactCatalogue}, as the heap used after a full collection.
+ * <br>
+ * Both hold the same products and reviews, every comment a string of its own as when parsed
+ * from the data files. Run it with a heap large enough for the object catalogue, e.g.
+ * {@code java -Xmx2g -cp target/benchmarks.jar labs.pm.data.CatalogueFootprint}.
+ * <br>
+ * Usage: {@code CatalogueFootprint [products] [reviewsPerProduct] [seed]}, 1000000 products
+ * with 3 reviews each by default.
+ * @version 4.0
+ * @author saade
+ **/
+final class CatalogueFootprint {
+    private record Objects(Map<Product, ReviewHistory> products, IntHashMap<Product> index,
+                           IntHashMap<RatingSummary> summaries, PersistentIntMap<CatalogueEntry> catalogue) {}
+
+    private CatalogueFootprint() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int reviews = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        long empty = usedAfterGc();
+        Objects objects = objects(new CatalogueGenerator(seed), products, reviews);
+        long objectsHeap = usedAfterGc() - empty;
+        Reference.reachabilityFence(objects);
+        objects = null;
+
+        empty = usedAfterGc();
+        CompactCatalogue compact = compact(new CatalogueGenerator(seed), products, reviews);
+        long compactHeap = usedAfterGc() - empty;
+        System.out.printf("%d products with %d reviews each%n", products, reviews);
+        System.out.printf("objects           %6d MB heap%n", objectsHeap >> 20);
+        System.out.printf("CompactCatalogue  %6d MB heap, of which %d MB comment chunks%n",
+                compactHeap >> 20, compact.commentBytes() >> 20);
+        Reference.reachabilityFence(compact);
+    }
+
+    private static Product product(CatalogueGenerator generator, int id) {
+        return id % 2 == 0
+                ? new Food(id, generator.name(), generator.price(), generator.rating(), LocalDate.now())
+                : new Drink(id, generator.name(), generator.price(), generator.rating());
+    }
+
+    private static Review review(CatalogueGenerator generator) {
+        return new Review(generator.rating(), new String(generator.comment()));
+    }
+
+    private static Objects objects(CatalogueGenerator generator, int products, int reviews) {
+        Map<Product, ReviewHistory> histories = new ConcurrentHashMap<>(products * 2);
+        IntHashMap<Product> index = new IntHashMap<>(products);
+        IntHashMap<RatingSummary> summaries = new IntHashMap<>(products);
+        PersistentIntMap<CatalogueEntry> catalogue = PersistentIntMap.empty();
+        for (int id = 1; id <= products; id++) {
+            Product product = product(generator, id);
+            List<Review> added = new ArrayList<>(reviews);
+            for (int i = 0; i < reviews; i++) {
+                added.add(review(generator));
+            }
+            ReviewHistory history = new ReviewHistory(added);
+            RatingSummary summary = RatingSummary.of(added);
+            histories.put(product, history);
+            index.put(id, product);
+            summaries.put(id, summary);
+            catalogue = catalogue.put(id, new CatalogueEntry(product, history.view(), summary));
+        }
+        return new Objects(histories, index, summaries, catalogue);
+    }
+
+    private static CompactCatalogue compact(CatalogueGenerator generator, int products, int reviews) {
+        CompactCatalogue compact = new CompactCatalogue(products, products * reviews);
+        for (int id = 1; id <= products; id++) {
+            compact.add(product(generator, id));
+            for (int i = 0; i < reviews; i++) {
+                compact.addReview(id, review(generator));
+            }
+        }
+        return compact;
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.LocalDate;
+import java.util.ResourceBundle;
+import java.util.SplittableRandom;
+
+/**
+ * {@code CatalogueGenerator} writes synthetic catalogues in the data file format
+ * of {@code config.properties}, one product and one reviews file per product.
+ * <br>
+ * Products have ids from 1, half of them are food with a best before date in the month
+ * around today, so some of them are discounted. The same seed gives the same catalogue.
+ * <br>
+ * Usage: {@code CatalogueGenerator folder products reviewsPerProduct [seed]}
+ * @version 4.0
+ * @author saade
+ **/
+final class CatalogueGenerator {
+    private static final String[] NAMES = {"Tea", "Coffee", "Cake", "Cookie", "Juice", "Water",
+            "Muffin", "Bagel", "Chocolate", "Lemonade", "Croissant", "Soda", "Sandwich", "Milk"};
+    private static final String[] COMMENTS = {"Nice hot cup of tea", "Rather weak tea",
+            "Fine tea", "Good tea", "Perfect tea", "Just add some lemon", "Not bad, not great",
+            "Tasty, would buy again", "Too sweet, \"really\" too sweet", "Cold, but fresh"};
+
+    private final ResourceBundle config = ResourceBundle.getBundle("config");
+    private final RecordCodec productCodec = new RecordCodec(config.getString("product.data.format"));
+    private final RecordCodec reviewCodec = new RecordCodec(config.getString("review.data.format"));
+    private final SplittableRandom random;
+
+    CatalogueGenerator(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    String name() {
+        return NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(1000);
+    }
+
+    BigDecimal price() {
+        return BigDecimal.valueOf(random.nextInt(50, 5000), 2);
+    }
+
+    LocalDate bestBefore() {
+        return LocalDate.now().plusDays(random.nextInt(-5, 25));
+    }
+
+    Rating rating() {
+        return Rating.values()[random.nextInt(1, Rating.values().length)];
+    }
+
+    String comment() {
+        return COMMENTS[random.nextInt(COMMENTS.length)];
+    }
+
+    /**
+     * @return a product line in the data file format, e.g. for {@code ProductManager.parseProduct}
+     */
+    String productLine(int id) {
+        boolean food = id % 2 == 0;
+        return productCodec.format(food ? "F" : "D", id, name(), price(), 0, food ? bestBefore() : "");
+    }
+
+    /**
+     * @return a review line in the data file format, e.g. for {@code ProductManager.parseReview}
+     */
+    String reviewLine() {
+        return reviewCodec.format(rating().ordinal(), comment());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: CatalogueGenerator folder products reviewsPerProduct [seed]");
+            System.exit(2);
+        }
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        int products = Integer.parseInt(args[1]);
+        int reviews = Integer.parseInt(args[2]);
+        long start = System.nanoTime();
+        new CatalogueGenerator(seed).writeDataFiles(Path.of(args[0]), products, reviews);
+        System.out.printf("Wrote %d products with %d reviews each to %s in %d ms%n",
+                products, reviews, args[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes products {@code 1} to {@code products} and their reviews into {@code folder}.
+     */
+    void writeDataFiles(Path folder, int products, int reviewsPerProduct) throws IOException {
+        Files.createDirectories(folder);
+        for (int id = 1; id <= products; id++) {
+            String key = Integer.toString(id);
+            Files.writeString(folder.resolve(MessageFormat.format(config.getString("product.data.file"), key)),
+                    productLine(id) + System.lineSeparator(), StandardCharsets.UTF_8);
+            try (BufferedWriter out = Files.newBufferedWriter(
+                    folder.resolve(MessageFormat.format(config.getString("reviews.data.file"), key)),
+                    StandardCharsets.UTF_8)) {
+                for (int i = 0; i < reviewsPerProduct; i++) {
+                    out.write(reviewLine());
+                    out.newLine();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * {@code CatalogueState} is a synthetic catalogue of {@code products} products with
+ * {@code reviews} reviews each, generated into a temporary folder that the
+ * {@link ProductManager} of the benchmark JVM is pointed at.
+ * <br>
+ * {@link ProductManager} is a singleton, so every trial needs a JVM of its own:
+ * run with at least one fork, which is the default.
+ * @version 4.0
+ * @author saade
+ **/
+@State(Scope.Benchmark)
+public class CatalogueState {
+    @Param({"10000"})
+    public int products;
+
+    @Param({"5"})
+    public int reviews;
+
+    Path folder;
+    ProductManager pm;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (System.getProperty("data.folder") != null) {
+            throw new IllegalStateException("catalogue already loaded in this JVM, run with forks");
+        }
+        folder = Files.createTempDirectory("pm-benchmark");
+        new CatalogueGenerator(42).writeDataFiles(folder.resolve("data"), products, reviews);
+        System.setProperty("data.folder", folder.resolve("data").toString());
+        System.setProperty("reports.folder", folder.resolve("reports").toString());
+        System.setProperty("temp.folder", folder.resolve("temp").toString());
+        System.setProperty("review.log.compact.minutes", "0");
+        Files.createDirectories(folder.resolve("reports"));
+        pm = ProductManager.getInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
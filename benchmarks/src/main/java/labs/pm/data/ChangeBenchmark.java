@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost to the write path of publishing {@link ProductEvent}s to {@code subscribers} subscribers,
+ * either {@code keeping up} by requesting every event, or {@code stalled} requesting none, so
+ * that their events are dropped or conflated: the cost of a whole review, and of publishing
+ * its events alone, on a {@link ChangePublisher} of its own.
+ * @version 4.0
+ * @author saade
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeBenchmark {
+    @Param({"0", "1", "10"})
+    public int subscribers;
+
+    @Param({"keeping-up", "stalled"})
+    public String subscriber;
+
+    private final LongAdder received = new LongAdder();
+    private final List<Flow.Subscription> subscriptions = new ArrayList<>();
+    private final ChangePublisher publisher = new ChangePublisher(1024, ChangePublisher.Overflow.CONFLATE,
+            new LongAdder(), new LongAdder(), new LongAdder());
+    private final List<Review> reviews = List.of(new Review(Rating.FOUR_STAR, "Yet another review"));
+    private Product product;
+
+    @State(Scope.Thread)
+    public static class Ids {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Setup
+    public void setUp(CatalogueState state) throws ProductManagerException {
+        product = state.pm.findProduct(1);
+        for (int i = 0; i < subscribers; i++) {
+            subscribe(state.pm.getChanges());
+            subscribe(publisher);
+        }
+    }
+
+    private void subscribe(Flow.Publisher<ProductEvent> changes) {
+        changes.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                synchronized (subscriptions) {
+                    subscriptions.add(subscription);
+                }
+                if (subscriber.equals("keeping-up")) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+            }
+
+            @Override
+            public void onNext(ProductEvent event) {
+                received.increment();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        synchronized (subscriptions) {
+            subscriptions.forEach(Flow.Subscription::cancel);
+        }
+    }
+
+    @Benchmark
+    public Product reviewProduct(CatalogueState state, Ids ids) {
+        return state.pm.reviewProduct(ids.random.nextInt(state.products) + 1, Rating.FOUR_STAR, "Yet another review");
+    }
+
+    @Benchmark
+    public void publishReviewed() {
+        publisher.reviewed(product, product, reviews);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publishReviewedContended() {
+        publisher.reviewed(product, product, reviews);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Product reviewProductContended(CatalogueState state, Ids ids) {
+        return state.pm.reviewProduct(ids.random.nextInt(state.products) + 1, Rating.FOUR_STAR, "Yet another review");
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * {@code CompactCatalogue} stores products and reviews as columns of primitive arrays
+ * instead of one object per product and per review.
+ * <br>
+ * A product is a position in the columns: id, price in cents, rating, type, best before
+ * day and name, names being dictionary encoded since many products share one.
+ * Reviews are rows of their own columns (rating, comment, next review of the same product)
+ * chained from the product, and the comment text is kept as UTF-8 in a few large byte array
+ * chunks rather than one string per comment.
+ * <br>
+ * {@link Product} and {@link Review} objects are only built when asked for, and a new rating
+ * overwrites one byte instead of replacing the product. Prices must be whole cents.
+ * <br>
+ * The store is not thread safe, callers are expected to guard changes.
+ * <br>
+ * The catalogue of {@link ProductManager} publishes immutable products and entries to its
+ * lock free readers, which a mutable column store cannot hand out, so this store lives in the
+ * benchmarks to compare lookups ({@link StoreBenchmark}) and footprint ({@link CatalogueFootprint}).
+ * @version 4.0
+ * @author saade
+ **/
+final class CompactCatalogue {
+    private static final byte FOOD = 'F';
+    private static final byte DRINK = 'D';
+    private static final int CHUNK = 1 << 22;
+    private static final int NONE = -1;
+
+    private int size;
+    private int[] ids;
+    private long[] prices;
+    private byte[] ratings;
+    private byte[] types;
+    private int[] bestBefore;
+    private int[] names;
+    private int[] firstReviews;
+    private int[] lastReviews;
+    private int[] reviewCounts;
+    /*
+     * open addressing table from id to position + 1, zero marks a free slot
+     */
+    private int[] positions;
+
+    private final Map<String, Integer> nameCodes = new HashMap<>();
+    private String[] dictionary = new String[16];
+
+    private int reviewSize;
+    private byte[] reviewRatings;
+    private long[] comments;
+    private int[] nextReviews;
+
+    private final List<ByteBuffer> arena = new ArrayList<>();
+    private ByteBuffer chunk;
+
+    CompactCatalogue() {
+        this(16, 16);
+    }
+
+    CompactCatalogue(int expectedProducts, int expectedReviews) {
+        int capacity = Math.max(16, expectedProducts);
+        ids = new int[capacity];
+        prices = new long[capacity];
+        ratings = new byte[capacity];
+        types = new byte[capacity];
+        bestBefore = new int[capacity];
+        names = new int[capacity];
+        firstReviews = new int[capacity];
+        lastReviews = new int[capacity];
+        reviewCounts = new int[capacity];
+        positions = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        int reviewCapacity = Math.max(16, expectedReviews);
+        reviewRatings = new byte[reviewCapacity];
+        comments = new long[reviewCapacity];
+        nextReviews = new int[reviewCapacity];
+    }
+
+    /**
+     * Copies a catalogue snapshot into a new store.
+     */
+    static CompactCatalogue of(PersistentIntMap<CatalogueEntry> catalogue) {
+        List<CatalogueEntry> entries = catalogue.values().toList();
+        CompactCatalogue store = new CompactCatalogue(entries.size(),
+                entries.stream().mapToInt(entry -> entry.reviews().size()).sum());
+        for (CatalogueEntry entry : entries) {
+            store.add(entry.product());
+            for (Review review : entry.reviews()) {
+                store.addReview(entry.product().getId(), review);
+            }
+        }
+        return store;
+    }
+
+    int size() {
+        return size;
+    }
+
+    IntStream ids() {
+        return Arrays.stream(ids, 0, size);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int position(int id) {
+        int mask = positions.length - 1;
+        for (int i = mix(id) & mask; positions[i] != 0; i = (i + 1) & mask) {
+            if (ids[positions[i] - 1] == id) {
+                return positions[i] - 1;
+            }
+        }
+        return NONE;
+    }
+
+    boolean contains(int id) {
+        return position(id) != NONE;
+    }
+
+    /**
+     * Adds a product without reviews, or changes its rating when the id is already stored.
+     * @throws IllegalArgumentException if the price is not a whole number of cents
+     */
+    void add(Product product) {
+        int position = position(product.getId());
+        if (position != NONE) {
+            ratings[position] = (byte) product.getRating().ordinal();
+            return;
+        }
+        long cents;
+        try {
+            cents = product.getPrice().movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("price of " + product.getId() + " is not in cents: "
+                    + product.getPrice(), e);
+        }
+        if (size == ids.length) {
+            grow(size + (size >> 1));
+        }
+        ids[size] = product.getId();
+        prices[size] = cents;
+        ratings[size] = (byte) product.getRating().ordinal();
+        types[size] = product instanceof Food ? FOOD : DRINK;
+        bestBefore[size] = product instanceof Food food ? (int) food.getBestBefore().toEpochDay() : 0;
+        names[size] = code(product.getName());
+        firstReviews[size] = NONE;
+        lastReviews[size] = NONE;
+        int mask = positions.length - 1;
+        int i = mix(product.getId()) & mask;
+        while (positions[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        positions[i] = ++size;
+    }
+
+    private int code(String name) {
+        return nameCodes.computeIfAbsent(name, key -> {
+            int code = nameCodes.size();
+            if (code == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, code << 1);
+            }
+            dictionary[code] = key;
+            return code;
+        });
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        types = Arrays.copyOf(types, capacity);
+        bestBefore = Arrays.copyOf(bestBefore, capacity);
+        names = Arrays.copyOf(names, capacity);
+        firstReviews = Arrays.copyOf(firstReviews, capacity);
+        lastReviews = Arrays.copyOf(lastReviews, capacity);
+        reviewCounts = Arrays.copyOf(reviewCounts, capacity);
+        if (capacity * 2 > positions.length) {
+            positions = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            int mask = positions.length - 1;
+            for (int p = 0; p < size; p++) {
+                int i = mix(ids[p]) & mask;
+                while (positions[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                positions[i] = p + 1;
+            }
+        }
+    }
+
+    /**
+     * Sets the rating of a stored product in place.
+     * @return {@code false} when the id is not stored
+     */
+    boolean rate(int id, Rating rating) {
+        int position = position(id);
+        if (position == NONE) {
+            return false;
+        }
+        ratings[position] = (byte) rating.ordinal();
+        return true;
+    }
+
+    /**
+     * Appends a review to a stored product.
+     * @return {@code false} when the id is not stored
+     */
+    boolean addReview(int id, Review review) {
+        int position = position(id);
+        if (position == NONE) {
+            return false;
+        }
+        if (reviewSize == reviewRatings.length) {
+            int capacity = reviewSize + (reviewSize >> 1);
+            reviewRatings = Arrays.copyOf(reviewRatings, capacity);
+            comments = Arrays.copyOf(comments, capacity);
+            nextReviews = Arrays.copyOf(nextReviews, capacity);
+        }
+        int row = reviewSize++;
+        reviewRatings[row] = (byte) review.rating().ordinal();
+        comments[row] = store(review.comment().getBytes(StandardCharsets.UTF_8));
+        nextReviews[row] = NONE;
+        if (lastReviews[position] == NONE) {
+            firstReviews[position] = row;
+        } else {
+            nextReviews[lastReviews[position]] = row;
+        }
+        lastReviews[position] = row;
+        reviewCounts[position]++;
+        return true;
+    }
+
+    /*
+     * A comment reference is the chunk number in the high 32 bits and the offset of the
+     * length prefixed bytes in the low 32 bits, a comment larger than a chunk gets a chunk of its own.
+     */
+    private long store(byte[] bytes) {
+        int needed = Integer.BYTES + bytes.length;
+        if (chunk == null || chunk.remaining() < needed) {
+            chunk = ByteBuffer.allocate(Math.max(CHUNK, needed));
+            arena.add(chunk);
+        }
+        long reference = ((long) (arena.size() - 1) << 32) | chunk.position();
+        chunk.putInt(bytes.length).put(bytes);
+        return reference;
+    }
+
+    private String comment(long reference) {
+        ByteBuffer buffer = arena.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a new view of the product with this id, or {@code null} when it is not stored
+     */
+    Product product(int id) {
+        int position = position(id);
+        if (position == NONE) {
+            return null;
+        }
+        BigDecimal price = BigDecimal.valueOf(prices[position], 2);
+        Rating rating = Rating.values()[ratings[position]];
+        String name = dictionary[names[position]];
+        return types[position] == FOOD
+                ? new Food(id, name, price, rating, LocalDate.ofEpochDay(bestBefore[position]))
+                : new Drink(id, name, price, rating);
+    }
+
+    /**
+     * @return new views of the reviews of the product with this id, in the order they were added
+     */
+    List<Review> reviews(int id) {
+        int position = position(id);
+        if (position == NONE) {
+            return List.of();
+        }
+        List<Review> reviews = new ArrayList<>(reviewCounts[position]);
+        for (int row = firstReviews[position]; row != NONE; row = nextReviews[row]) {
+            reviews.add(new Review(Rating.values()[reviewRatings[row]], comment(comments[row])));
+        }
+        return reviews;
+    }
+
+    int reviewCount(int id) {
+        int position = position(id);
+        return position == NONE ? 0 : reviewCounts[position];
+    }
+
+    /**
+     * @return the bytes of the chunks holding review comments
+     */
+    long commentBytes() {
+        return arena.stream().mapToLong(ByteBuffer::capacity).sum();
+    }
+}
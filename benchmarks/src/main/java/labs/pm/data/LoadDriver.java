@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import labs.pm.app.ShopServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code LoadDriver} runs many {@code Shop} like clients against a catalogue and reports
+ * throughput and latency percentiles per operation.
+ * <br>
+ * Each client loops until the duration is over, picking an operation from the mix,
+ * a product by Zipf popularity (the lowest id being the most popular) and a language from the
+ * language mix, and records how long the call took. Clients run closed loop, without pause,
+ * so latencies are service times under the offered concurrency.
+ * <br>
+ * Options, all optional:
+ * <pre>
+ * --clients=100                clients running at once
+ * --duration=30s               how long to run, e.g. 500ms, 30s, 5m
+ * --warmup=5s                  run before measuring, not reported
+ * --executor=virtual           virtual, or platform for one platform thread per client
+ * --mix=find:50,review:20,discounts:15,report:10,list:5
+ * --zipf=0.99                  popularity skew, 0 for uniform
+ * --languages=en-GB:4,en-US:2,fr-FR:1,ru-RU:1
+ * --data=folder                existing data folder, reviews are logged into it,
+ *                              otherwise a catalogue is generated in a temporary folder
+ * --products=10000             products to generate
+ * --reviews=5                  reviews per generated product
+ * --seed=42
+ * --clock=2025-06-01T18:00     fixed time for discounts, the system clock by default
+ * --http=0                     call a {@link ShopServer} over HTTP instead of the product manager:
+ *                              a port to start one in process, 0 for any free port,
+ *                              or the URL of a running one, e.g. http://localhost:8080
+ * </pre>
+ * Over HTTP connections are kept alive and reused between calls, and a response with a status other
+ * than 200 counts as an error.
+ * @version 4.0
+ * @author saade
+ **/
+public final class LoadDriver {
+    enum Operation {FIND, REVIEW, DISCOUNTS, REPORT, LIST}
+
+    private static final long HIGHEST_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final Map<String, String> options;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Writer sink = Writer.nullWriter();
+    private ProductManager pm;
+    private HttpClient http;
+    private String url;
+    private int[] ids;
+    private Operation[] operations;
+    private double[] operationWeights;
+    private String[] languages;
+    private double[] languageWeights;
+    private double[] popularity;
+
+    private LoadDriver(Map<String, String> options) {
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_NANOS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("usage: LoadDriver [--option=value]..., see the class documentation");
+                System.exit(2);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadDriver(options).run();
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private static Duration duration(String text) {
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        return switch (text.charAt(text.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("unknown duration " + text);
+        };
+    }
+
+    /*
+     * Parses name:weight pairs into names and cumulative weights normalized to 1.
+     */
+    private static Map.Entry<String[], double[]> weights(String text) {
+        String[] pairs = text.split(",");
+        String[] names = new String[pairs.length];
+        double[] cumulative = new double[pairs.length];
+        double total = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            String[] pair = pairs[i].split(":");
+            names[i] = pair[0].trim();
+            total += pair.length > 1 ? Double.parseDouble(pair[1]) : 1;
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= total;
+        }
+        return Map.entry(names, cumulative);
+    }
+
+    private static int pick(double[] cumulative, double value) {
+        int i = Arrays.binarySearch(cumulative, value);
+        return Math.min(i >= 0 ? i : -i - 1, cumulative.length - 1);
+    }
+
+    /*
+     * Cumulative Zipf distribution over product ranks, rank k having weight 1 / k^s.
+     */
+    private static double[] zipf(int n, double s) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int k = 1; k <= n; k++) {
+            total += 1 / Math.pow(k, s);
+            cumulative[k - 1] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private void setUp() throws IOException {
+        long seed = Long.parseLong(option("seed", "42"));
+        Path data;
+        if (options.containsKey("data")) {
+            data = Path.of(options.get("data"));
+        } else {
+            Path folder = Files.createTempDirectory("pm-load");
+            data = folder.resolve("data");
+            int count = Integer.parseInt(option("products", "10000"));
+            int reviews = Integer.parseInt(option("reviews", "5"));
+            long start = System.nanoTime();
+            new CatalogueGenerator(seed).writeDataFiles(data, count, reviews);
+            System.out.printf("Generated %d products with %d reviews each in %s (%d ms)%n",
+                    count, reviews, data, (System.nanoTime() - start) / 1_000_000);
+            System.setProperty("reports.folder", folder.resolve("reports").toString());
+            System.setProperty("temp.folder", folder.resolve("temp").toString());
+            Files.createDirectories(folder.resolve("reports"));
+        }
+        System.setProperty("data.folder", data.toString());
+        pm = ProductManager.getInstance();
+        if (options.containsKey("clock")) {
+            ZoneId zone = ZoneId.systemDefault();
+            pm.setClock(Clock.fixed(LocalDateTime.parse(options.get("clock")).atZone(zone).toInstant(), zone));
+        }
+        if (options.containsKey("http")) {
+            String target = options.get("http");
+            if (target.startsWith("http")) {
+                url = target;
+            } else {
+                ShopServer server = new ShopServer(pm, new InetSocketAddress("localhost", Integer.parseInt(target)));
+                url = "http://localhost:" + server.getPort();
+            }
+            http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+        ids = pm.findProducts(ProductQuery.ratedAtLeast(Rating.NOT_RATED)).stream()
+                .mapToInt(Product::getId)
+                .sorted()
+                .toArray();
+        if (ids.length == 0) {
+            throw new IllegalStateException("no products in " + data);
+        }
+        Map.Entry<String[], double[]> mix = weights(option("mix", "find:50,review:20,discounts:15,report:10,list:5"));
+        operations = Arrays.stream(mix.getKey())
+                .map(name -> Operation.valueOf(name.toUpperCase()))
+                .toArray(Operation[]::new);
+        operationWeights = mix.getValue();
+        Map.Entry<String[], double[]> languageMix = weights(option("languages", "en-GB:4,en-US:2,fr-FR:1,ru-RU:1"));
+        languages = languageMix.getKey();
+        languageWeights = languageMix.getValue();
+        popularity = zipf(ids.length, Double.parseDouble(option("zipf", "0.99")));
+    }
+
+    private void call(Operation operation, int id, String languageTag, SplittableRandom random) throws Exception {
+        switch (operation) {
+            case FIND -> pm.findProduct(id);
+            case REVIEW -> pm.reviewProduct(id, Rating.values()[random.nextInt(1, Rating.values().length)],
+                    "Load test review");
+            case DISCOUNTS -> pm.getDiscounts(languageTag);
+            case REPORT -> pm.printProductReport(id, languageTag, "load").join();
+            case LIST -> pm.printProducts(product -> product.getRating() == Rating.FIVE_STAR,
+                    Comparator.comparing(Product::getPrice), 0, 20, languageTag, sink);
+        }
+    }
+
+    private void request(Operation operation, int id, String languageTag, SplittableRandom random) throws Exception {
+        String lang = "?lang=" + languageTag;
+        HttpRequest.Builder request = switch (operation) {
+            case FIND -> HttpRequest.newBuilder(URI.create(url + "/products/" + id + lang));
+            case REVIEW -> HttpRequest.newBuilder(URI.create(url + "/products/" + id + "/reviews" + lang
+                            + "&rating=" + random.nextInt(1, Rating.values().length)))
+                    .POST(HttpRequest.BodyPublishers.ofString("Load test review"));
+            case DISCOUNTS -> HttpRequest.newBuilder(URI.create(url + "/discounts" + lang));
+            case REPORT -> HttpRequest.newBuilder(URI.create(url + "/products/" + id + "/report" + lang));
+            case LIST -> HttpRequest.newBuilder(URI.create(url + "/products" + lang + "&rating=5&sort=price&limit=20"));
+        };
+        HttpResponse<Void> response = http.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IOException(operation + " answered " + response.statusCode());
+        }
+    }
+
+    private long client(long seed, long until) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long calls = 0;
+        while (System.nanoTime() < until) {
+            Operation operation = operations[pick(operationWeights, random.nextDouble())];
+            int id = ids[pick(popularity, random.nextDouble())];
+            String languageTag = languages[pick(languageWeights, random.nextDouble())];
+            long start = System.nanoTime();
+            try {
+                if (http == null) {
+                    call(operation, id, languageTag, random);
+                } else {
+                    request(operation, id, languageTag, random);
+                }
+                recorders.get(operation).recordValue(Math.min(System.nanoTime() - start, HIGHEST_NANOS));
+            } catch (Exception e) {
+                errors.get(operation).increment();
+            }
+            calls++;
+        }
+        return calls;
+    }
+
+    private void runPhase(int clients, Duration duration, boolean platform, long seed) throws Exception {
+        long until = System.nanoTime() + duration.toNanos();
+        try (ExecutorService executor = platform
+                ? Executors.newFixedThreadPool(clients)
+                : Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> running = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                long clientSeed = seed + i;
+                running.add(executor.submit(() -> client(clientSeed, until)));
+            }
+            for (Future<Long> client : running) {
+                client.get();
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        setUp();
+        int clients = Integer.parseInt(option("clients", "100"));
+        boolean platform = option("executor", "virtual").equals("platform");
+        Duration duration = duration(option("duration", "30s"));
+        long seed = Long.parseLong(option("seed", "42"));
+        System.out.printf("%d %s clients on %d products%s for %s, mix %s, zipf %s%n", clients,
+                platform ? "platform" : "virtual", ids.length, url == null ? "" : " over HTTP at " + url, duration,
+                option("mix", "find:50,review:20,discounts:15,report:10,list:5"), option("zipf", "0.99"));
+        Duration warmup = duration(option("warmup", "5s"));
+        if (!warmup.isZero()) {
+            runPhase(clients, warmup, platform, seed);
+            recorders.values().forEach(Recorder::reset);
+            errors.values().forEach(LongAdder::reset);
+        }
+        long start = System.nanoTime();
+        runPhase(clients, duration, platform, seed + clients);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report(seconds);
+        System.exit(0);
+    }
+
+    private void report(double seconds) {
+        System.out.printf("%-10s %10s %10s %9s %9s %9s %9s %9s %7s%n",
+                "operation", "calls", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "errors");
+        Histogram all = new Histogram(HIGHEST_NANOS, 3);
+        for (Operation operation : operations) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            all.add(histogram);
+            print(operation.name().toLowerCase(), histogram, seconds, errors.get(operation).sum());
+        }
+        print("all", all, seconds, errors.values().stream().mapToLong(LongAdder::sum).sum());
+        print("report cache", pm.getReportCacheStatistics());
+        print("review store", pm.getReviewStoreStatistics());
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("heap used after gc %d MB%n", (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+    }
+
+    private static void print(String name, CacheStatistics statistics) {
+        if (statistics != null) {
+            System.out.printf("%s: %.1f%% hits, %d misses, %d evictions, %d entries, %d of %d KB%n", name,
+                    statistics.hitRate() * 100, statistics.misses(), statistics.evictions(),
+                    statistics.entries(), statistics.size() >> 10, statistics.capacity() >> 10);
+        }
+    }
+
+    private static void print(String name, Histogram histogram, double seconds, long errors) {
+        System.out.printf("%-10s %10d %10.0f %9.1f %9.1f %9.1f %9.1f %9.1f %7d%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(90) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+                histogram.getMaxValue() / 1e3, errors);
+    }
+}
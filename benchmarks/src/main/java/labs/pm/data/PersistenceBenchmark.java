@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks of loading, dumping and restoring the whole catalogue.
+ * <br>
+ * {@code storage} selects what {@code loadAllData} reads: the csv data files,
+ * or the binary catalogue file exported from them.
+ * @version 4.0
+ * @author saade
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+    @Param({"csv", "binary"})
+    public String storage;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogueState state) throws IOException {
+        if (storage.equals("binary")) {
+            state.pm.exportCatalogue();
+        }
+    }
+
+    @Benchmark
+    public void loadAllData(CatalogueState state) {
+        state.pm.loadAllData();
+    }
+
+    @Benchmark
+    public void dumpData(CatalogueState state) {
+        state.pm.dumpData();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteSnapshots(CatalogueState state) throws IOException {
+        Path temp = state.folder.resolve("temp");
+        if (Files.exists(temp)) {
+            try (Stream<Path> files = Files.list(temp)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores a snapshot dumped before each call, outside of the measurement.
+     */
+    @State(Scope.Thread)
+    public static class Snapshot {
+        @Setup(Level.Invocation)
+        public void dump(CatalogueState state) {
+            state.pm.dumpData();
+        }
+    }
+
+    @Benchmark
+    public void restoreData(CatalogueState state, Snapshot snapshot) {
+        state.pm.restoreData();
+    }
+}
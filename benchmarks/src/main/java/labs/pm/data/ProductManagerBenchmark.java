@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded benchmarks of the {@link ProductManager} calls made per request.
+ * @version 4.0
+ * @author saade
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductManagerBenchmark {
+    private static final int BATCH = 1000;
+    private static final int REPORT_REVIEWS = 5;
+
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final Writer sink = Writer.nullWriter();
+    private String productLine;
+    private String reviewLine;
+    /*
+     * the parsers replaced by RecordCodec, as baselines of parseProduct and parseReview
+     */
+    private MessageFormat productFormat;
+    private MessageFormat reviewFormat;
+    /*
+     * the localized lines of a report, rendered with MessageTemplate and with MessageFormat
+     */
+    private String productPattern;
+    private String reviewPattern;
+    private MessageTemplate productTemplate;
+    private MessageTemplate reviewTemplate;
+    private final Object[] productValues = {"Chocolate 823", "£39.85", "★★☆☆☆", "18/10/2026", "●"};
+    private final Object[] reviewValues = {"★★★★☆", "Nice hot cup of tea"};
+
+    @Setup
+    public void setUp() {
+        CatalogueGenerator generator = new CatalogueGenerator(7);
+        productLine = generator.productLine(2);
+        reviewLine = generator.reviewLine();
+        ResourceBundle config = ResourceBundle.getBundle("config");
+        productFormat = new MessageFormat(config.getString("product.data.format"));
+        reviewFormat = new MessageFormat(config.getString("review.data.format"));
+        ResourceBundle resources = ResourceBundle.getBundle("resources", Locale.UK);
+        productPattern = resources.getString("product");
+        reviewPattern = resources.getString("review");
+        productTemplate = new MessageTemplate(productPattern);
+        reviewTemplate = new MessageTemplate(reviewPattern);
+    }
+
+    private int anyId(CatalogueState state) {
+        return random.nextInt(state.products) + 1;
+    }
+
+    @Benchmark
+    public Product findProduct(CatalogueState state) throws ProductManagerException {
+        return state.pm.findProduct(anyId(state));
+    }
+
+    @Benchmark
+    public Product reviewProduct(CatalogueState state) {
+        return state.pm.reviewProduct(anyId(state), Rating.FOUR_STAR, "Yet another review");
+    }
+
+    /**
+     * Time per review of a batch of {@value #BATCH} reviews, to compare with {@link #reviewProduct}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<ReviewCommand.Result> reviewProducts(CatalogueState state) {
+        List<ReviewCommand> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(new ReviewCommand(anyId(state), Rating.FOUR_STAR, "Yet another review"));
+        }
+        return state.pm.reviewProducts(batch);
+    }
+
+    @Benchmark
+    public Map<String, String> getDiscounts(CatalogueState state) {
+        return state.pm.getDiscounts("en-GB");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void printProductsPage(CatalogueState state) throws IOException {
+        state.pm.printProducts(product -> product.getPrice().floatValue() < 10,
+                Comparator.comparing(Product::getRating).reversed(), 0, 20, "en-GB", sink);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void printProductsAll(CatalogueState state) throws IOException {
+        state.pm.printProducts(product -> true,
+                Comparator.comparing(Product::getRating).reversed(), 0, Integer.MAX_VALUE, "en-GB", sink);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Product> findProductsPricedBetween(CatalogueState state) {
+        return state.pm.findProducts(ProductQuery.pricedBetween(new BigDecimal("10.00"), new BigDecimal("10.50")));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Product> searchAllWords(CatalogueState state) {
+        return state.pm.searchProducts("lemon sweet", 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Product> searchPrefixOr(CatalogueState state) {
+        return state.pm.searchProducts("croiss* OR bag* fresh", 20);
+    }
+
+    @Benchmark
+    public Product parseProduct(CatalogueState state) {
+        return state.pm.parseProduct(productLine);
+    }
+
+    @Benchmark
+    public Review parseReview(CatalogueState state) {
+        return state.pm.parseReview(reviewLine);
+    }
+
+    /**
+     * {@link #parseProduct} as it was with {@link MessageFormat}.
+     */
+    @Benchmark
+    public Product parseProductMessageFormat() throws ParseException {
+        Object[] values = productFormat.parse(productLine);
+        int id = Integer.parseInt((String) values[1]);
+        String name = (String) values[2];
+        BigDecimal price = BigDecimal.valueOf(Double.parseDouble((String) values[3]));
+        Rating rating = Reatable.convert(Integer.parseInt((String) values[4]));
+        return switch ((String) values[0]) {
+            case "D" -> new Drink(id, name, price, rating);
+            case "F" -> new Food(id, name, price, rating, LocalDate.parse((String) values[5]));
+            default -> null;
+        };
+    }
+
+    /**
+     * {@link #parseReview} as it was with {@link MessageFormat}.
+     */
+    @Benchmark
+    public Review parseReviewMessageFormat() throws ParseException {
+        Object[] values = reviewFormat.parse(reviewLine);
+        return new Review(Reatable.convert(Integer.parseInt((String) values[0])), (String) values[1]);
+    }
+
+    /**
+     * The lines of a report with {@value #REPORT_REVIEWS} reviews, from formatted values.
+     */
+    @Benchmark
+    public String renderReportTemplate() {
+        StringBuilder report = productTemplate.appendTo(new StringBuilder(), productValues).append('\n');
+        for (int i = 0; i < REPORT_REVIEWS; i++) {
+            reviewTemplate.appendTo(report, reviewValues).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * {@link #renderReportTemplate} as it was with {@link MessageFormat}.
+     */
+    @Benchmark
+    public String renderReportMessageFormat() {
+        StringBuilder report = new StringBuilder(MessageFormat.format(productPattern, productValues)).append('\n');
+        for (int i = 0; i < REPORT_REVIEWS; i++) {
+            report.append(MessageFormat.format(reviewPattern, reviewValues)).append('\n');
+        }
+        return report.toString();
+    }
+}
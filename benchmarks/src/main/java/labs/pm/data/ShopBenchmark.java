@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi threaded benchmarks mirroring the clients of {@code Shop}.
+ * <br>
+ * {@code client} is one whole client as {@code Shop} runs it on each of its three threads:
+ * discounts, a review of one of twenty popular products and that product's report.
+ * {@link ShopScaling} runs it again with 1 to 8 threads, to show how it scales.
+ * The {@code readWrite} group has lookups and reviews of the same products in parallel.
+ * @version 4.0
+ * @author saade
+ **/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopBenchmark {
+    private static final int POPULAR = 20;
+
+    private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    private final List<String> languages = List.copyOf(ProductManager.getSupportedLanguages());
+
+    private int popularId(CatalogueState state) {
+        return random.nextInt(Math.min(POPULAR, state.products)) + 1;
+    }
+
+    @Benchmark
+    @Threads(3)
+    public Path client(CatalogueState state) {
+        int id = popularId(state);
+        String languageTag = languages.get(random.nextInt(4));
+        state.pm.getDiscounts(languageTag);
+        state.pm.reviewProduct(id, Rating.FOUR_STAR, "Yet another review");
+        return state.pm.printProductReport(id, languageTag, "client").join();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Product find(CatalogueState state) throws ProductManagerException {
+        return state.pm.findProduct(popularId(state));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Product review(CatalogueState state) {
+        return state.pm.reviewProduct(popularId(state), Rating.THREE_STAR, "Another review");
+    }
+}
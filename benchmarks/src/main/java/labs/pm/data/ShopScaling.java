@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * {@code ShopScaling} runs {@link ShopBenchmark#client} once per thread count, since JMH cannot
+ * take the number of threads as a {@code @Param}, and prints the throughput of each run and its
+ * speedup over the first, to show how far the clients of {@code Shop} scale with more threads.
+ * <br>
+ * The same sweep can be run by hand with {@code -t}, e.g.
+ * {@code java -jar target/benchmarks.jar ShopBenchmark.client -t 4}, which overrides {@code @Threads}.
+ * <br>
+ * Usage: {@code java -cp target/benchmarks.jar labs.pm.data.ShopScaling [threads...]},
+ * 1 2 4 8 threads by default.
+ * @version 4.0
+ * @author saade
+ **/
+final class ShopScaling {
+    private ShopScaling() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int[] threads = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1, 2, 4, 8};
+        double[] scores = new double[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            Options options = new OptionsBuilder()
+                    .include(ShopBenchmark.class.getName() + ".client$")
+                    .threads(threads[i])
+                    .build();
+            RunResult result = new Runner(options).runSingle();
+            scores[i] = result.getPrimaryResult().getScore();
+        }
+        System.out.printf("%nShopBenchmark.client on %d processors%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %14s %8s%n", "threads", "ops/s", "speedup");
+        for (int i = 0; i < threads.length; i++) {
+            System.out.printf("%8d %14.1f %8.2f%n", threads[i], scores[i], scores[i] / scores[0]);
+        }
+    }
+}
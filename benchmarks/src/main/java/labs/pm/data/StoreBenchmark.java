@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of looking a product up by id in each of the catalogue structures:
+ * a {@link HashMap} as before {@link IntHashMap}, the {@link IntHashMap} index, the
+ * published {@link PersistentIntMap} snapshot, and the {@link CompactCatalogue} columns,
+ * which build a new product on every lookup.
+ * @version 4.0
+ * @author saade
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoreBenchmark {
+    @Param({"100000"})
+    public int products;
+
+    private final SplittableRandom random = new SplittableRandom(11);
+    private final Map<Integer, Product> hashMap = new HashMap<>();
+    private final IntHashMap<Product> intHashMap = new IntHashMap<>();
+    private PersistentIntMap<CatalogueEntry> snapshot = PersistentIntMap.empty();
+    private CompactCatalogue compact;
+
+    @Setup
+    public void setUp() {
+        CatalogueGenerator generator = new CatalogueGenerator(11);
+        for (int id = 1; id <= products; id++) {
+            Product product = id % 2 == 0
+                    ? new Food(id, generator.name(), generator.price(), generator.rating(), LocalDate.now())
+                    : new Drink(id, generator.name(), generator.price(), generator.rating());
+            List<Review> reviews = List.of(new Review(generator.rating(), generator.comment()));
+            hashMap.put(id, product);
+            intHashMap.put(id, product);
+            snapshot = snapshot.put(id, new CatalogueEntry(product, reviews, RatingSummary.of(reviews)));
+        }
+        compact = CompactCatalogue.of(snapshot);
+    }
+
+    private int anyId() {
+        return random.nextInt(products) + 1;
+    }
+
+    @Benchmark
+    public Product hashMap() {
+        return hashMap.get(anyId());
+    }
+
+    @Benchmark
+    public Product intHashMap() {
+        return intHashMap.get(anyId());
+    }
+
+    @Benchmark
+    public Product persistentIntMap() {
+        return snapshot.get(anyId()).product();
+    }
+
+    @Benchmark
+    public Product compactCatalogue() {
+        return compact.product(anyId());
+    }
+
+    @Benchmark
+    public List<Review> compactCatalogueReviews() {
+        return compact.reviews(anyId());
+    }
+}
@@ -16,6 +16,7 @@ package labs.pm.app;
 import labs.pm.data.*;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.*;
@@ -49,8 +50,13 @@ public class Shop {
             Product product = pm.reviewProduct(productId,Rating.FOUR_STAR,"Yet another review");
             log.append((product!=null) ? "\nProduct"+productId+ "reviewed\n"
                     :"\nProduct"+productId+ "not reviewed\n");
-            pm.printProductReport(productId,languageTag,clientId);
-            log.append(clientId+" generated report for "+productId+" product");
+            try {
+                Path report = pm.printProductReport(productId,languageTag,clientId).join();
+                log.append((report!=null) ? clientId+" generated report for "+productId+" product"
+                        :clientId+" generated no report for "+productId+" product");
+            } catch (CompletionException e) {
+                log.append(clientId+" failed to generate report for "+productId+" product: "+e.getCause());
+            }
             log.append("\n-\tend of log\t-\n");
             return log.toString();
         };
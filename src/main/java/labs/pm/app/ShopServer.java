@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import labs.pm.data.Product;
+import labs.pm.data.ProductManager;
+import labs.pm.data.ProductManagerException;
+import labs.pm.data.Rating;
+import labs.pm.data.Reatable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * {@code ShopServer} serves the {@link ProductManager} operations over HTTP, one virtual thread per request.
+ * <br>
+ * Responses are plain UTF-8 text in the language of the {@code lang} parameter, or of the
+ * first supported {@code Accept-Language}, English otherwise:
+ * <pre>
+ * GET  /products/{id}                       the product
+ * POST /products/{id}/reviews?rating=1..5   reviews the product with the request body as comment
+ * GET  /products/{id}/report                downloads the report of the product
+ * GET  /products?rating=&sort=&offset=&limit=
+ *                                           lists the products rated at least {@code rating},
+ *                                           sorted by {@code price} or {@code rating}, streamed
+ * GET  /search?q=&limit=                    the best rated products whose name or reviews match
+ *                                           {@code q}, see {@link ProductManager#searchProducts}
+ * GET  /discounts                           the discount per rating
+ * </pre>
+ * Connections are kept alive between requests, and requests pipelined on a connection
+ * are answered in order. Every response but the listing has a known length.
+ * <br>
+ * Usage: {@code ShopServer [port]}, 8080 by default.
+ * @version 4.0
+ * @author saade
+ **/
+public final class ShopServer implements Closeable {
+    private static final Logger logger = Logger.getLogger(ShopServer.class.getName());
+    private static final String TEXT = "text/plain; charset=UTF-8";
+    private static final String DEFAULT_LANGUAGE = "en-GB";
+
+    /*
+     * Defaults of the JDK server, read once when it is first used, unless set on the command line:
+     * headers and body are separate writes, which Nagle's algorithm holds back until the client's
+     * delayed ack, some 40 ms per response; and only 200 idle keep alive connections are kept.
+     */
+    static {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+        }
+    }
+
+    private final ProductManager pm;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Starts serving on {@code address}, port 0 picks a free port.
+     */
+    public ShopServer(ProductManager pm, InetSocketAddress address) throws IOException {
+        this.pm = pm;
+        server = HttpServer.create(address, 1024);
+        server.createContext("/products", this::products);
+        server.createContext("/search", this::search);
+        server.createContext("/discounts", this::discounts);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ShopServer server = new ShopServer(ProductManager.getInstance(), new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        logger.log(Level.INFO, "Serving products on port {0}", Integer.toString(server.getPort()));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void products(HttpExchange exchange) {
+        try (exchange) {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            try {
+                if (path.length == 2 && method.equals("GET")) {
+                    list(exchange);
+                } else if (path.length == 3 && method.equals("GET")) {
+                    find(exchange, Integer.parseInt(path[2]));
+                } else if (path.length == 4 && path[3].equals("reviews") && method.equals("POST")) {
+                    review(exchange, Integer.parseInt(path[2]), body);
+                } else if (path.length == 4 && path[3].equals("report") && method.equals("GET")) {
+                    report(exchange, Integer.parseInt(path[2]));
+                } else {
+                    send(exchange, 404, "Not found");
+                }
+            } catch (NumberFormatException e) {
+                send(exchange, 400, "Bad request: " + e.getMessage());
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, e, () -> "Error while answering " + exchange.getRequestURI());
+                send(exchange, 500, "Internal error");
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error while answering {0}: {1}",
+                    new Object[]{exchange.getRequestURI(), e.getMessage()});
+        }
+    }
+
+    private void find(HttpExchange exchange, int id) throws IOException {
+        try {
+            Product product = pm.findProduct(id);
+            send(exchange, 200, pm.formatProduct(product, language(exchange)) + "\n");
+        } catch (ProductManagerException e) {
+            send(exchange, 404, e.getMessage());
+        }
+    }
+
+    private void review(HttpExchange exchange, int id, String comment) throws IOException {
+        Rating rating = Reatable.convert(Integer.parseInt(parameters(exchange).getOrDefault("rating", "0")));
+        if (rating == Rating.NOT_RATED) {
+            send(exchange, 400, "Bad request: rating from 1 to 5 expected");
+            return;
+        }
+        Product product = pm.reviewProduct(id, rating, comment);
+        if (product == null) {
+            send(exchange, 404, "product " + id + " not found");
+        } else {
+            send(exchange, 200, pm.formatProduct(product, language(exchange)) + "\n");
+        }
+    }
+
+    private void report(HttpExchange exchange, int id) throws IOException {
+        byte[] report = pm.getProductReport(id, language(exchange));
+        if (report == null) {
+            send(exchange, 404, "product " + id + " not found");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", TEXT);
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"product" + id + ".txt\"");
+        exchange.sendResponseHeaders(200, report.length);
+        exchange.getResponseBody().write(report);
+    }
+
+    /*
+     * Every parameter is checked before the headers are sent, a listing cannot fail with a 400 once started.
+     */
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        int stars = Integer.parseInt(parameters.getOrDefault("rating", "0"));
+        if (stars < 0 || stars > 5) {
+            send(exchange, 400, "Bad request: rating from 0 to 5 expected");
+            return;
+        }
+        Rating rating = Reatable.convert(stars);
+        Comparator<Product> sorter = switch (parameters.getOrDefault("sort", "rating")) {
+            case "price" -> Comparator.comparing(Product::getPrice);
+            case "rating" -> Comparator.comparing(Product::getRating).reversed();
+            default -> null;
+        };
+        if (sorter == null) {
+            send(exchange, 400, "Bad request: sort by price or rating expected");
+            return;
+        }
+        int offset = Integer.parseInt(parameters.getOrDefault("offset", "0"));
+        int limit = Integer.parseInt(parameters.getOrDefault("limit", Integer.toString(Integer.MAX_VALUE)));
+        if (offset < 0 || limit < 0) {
+            send(exchange, 400, "Bad request: non negative offset and limit expected");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", TEXT);
+        exchange.sendResponseHeaders(200, 0);
+        Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+        pm.printProducts(product -> product.getRating().ordinal() >= rating.ordinal(), sorter,
+                offset, limit, language(exchange), out);
+        out.flush();
+    }
+
+    private void search(HttpExchange exchange) {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            Map<String, String> parameters = parameters(exchange);
+            try {
+                int limit = Integer.parseInt(parameters.getOrDefault("limit", "20"));
+                if (limit <= 0) {
+                    send(exchange, 400, "Bad request: positive limit expected");
+                    return;
+                }
+                String language = language(exchange);
+                String body = pm.searchProducts(parameters.getOrDefault("q", ""), limit).stream()
+                        .map(product -> pm.formatProduct(product, language) + "\n")
+                        .collect(Collectors.joining());
+                send(exchange, 200, body);
+            } catch (NumberFormatException e) {
+                send(exchange, 400, "Bad request: " + e.getMessage());
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error while answering {0}: {1}",
+                    new Object[]{exchange.getRequestURI(), e.getMessage()});
+        }
+    }
+
+    private void discounts(HttpExchange exchange) {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            String body = pm.getDiscounts(language(exchange)).entrySet().stream()
+                    .map(entry -> entry.getKey() + "\t" + entry.getValue() + "\n")
+                    .collect(Collectors.joining());
+            send(exchange, 200, body);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error while answering {0}: {1}",
+                    new Object[]{exchange.getRequestURI(), e.getMessage()});
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", TEXT);
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error while answering {0}: {1}",
+                    new Object[]{exchange.getRequestURI(), e.getMessage()});
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static String language(HttpExchange exchange) {
+        String tag = parameters(exchange).get("lang");
+        if (tag != null) {
+            return tag;
+        }
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Language");
+        if (accepted != null) {
+            for (String range : accepted.split(",")) {
+                String candidate = range.split(";")[0].trim();
+                if (ProductManager.getSupportedLanguages().contains(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return DEFAULT_LANGUAGE;
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+/**
+ * {@code CacheStatistics} is a point in time reading of a cache.
+ * @param hits lookups served from the cache
+ * @param misses lookups that had to render
+ * @param evictions entries dropped to stay within capacity
+ * @param entries entries currently cached
+ * @param size bytes currently cached
+ * @param capacity maximum bytes cached
+ * @version 4.0
+ * @author saade
+ **/
+public record CacheStatistics(long hits, long misses, long evictions, int entries, long size, long capacity) {
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.List;
+
+/**
+ * {@code CatalogueEntry} is the published, immutable state of one product:
+ * the product, its reviews at that point and their {@link RatingSummary summary}.
+ * @version 4.0
+ * @author saade
+ **/
+record CatalogueEntry(Product product, List<Review> reviews, RatingSummary summary) {
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code CatalogueFile} is the single file binary form of the catalogue,
+ * an alternative to one {@code product} and one {@code reviews} csv file per product.
+ * <br>
+ * Layout: a header (magic, version), one record per product (type, id, name, price,
+ * rating, best before for food, then its reviews), an index of (id, record offset) pairs
+ * sorted by id, and the offset of that index in the last eight bytes.
+ * <br>
+ * The whole file is read into the heap and decoded with absolute reads, so several threads
+ * can load it at once, and the reviews of a product can be {@link #readReviews read back} by id
+ * for the {@link ReviewStore} with a few positional reads, without reading the rest of the file.
+ * The file is not memory mapped, since a mapped file cannot be replaced or deleted on Windows
+ * until the mapping is garbage collected.
+ * @version 4.0
+ * @author saade
+ **/
+final class CatalogueFile {
+    private static final int MAGIC = 0x504D4331;
+    private static final int VERSION = 1;
+    private static final int HEADER = 2 * Integer.BYTES;
+    private static final int INDEX_ENTRY = Integer.BYTES + Long.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int index;
+
+    private CatalogueFile(ByteBuffer buffer) {
+        this.buffer = buffer;
+        index = (int) buffer.getLong(buffer.limit() - Long.BYTES);
+        count = buffer.getInt(index);
+    }
+
+    /**
+     * Reads a whole catalogue file, e.g. to load every product.
+     */
+    static CatalogueFile read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("catalogue file larger than 2GB: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            readFully(channel, buffer, 0, file);
+            checkHeader(buffer.limit(), buffer, file);
+            return new CatalogueFile(buffer);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * @param i position in the index, from 0 to {@link #size() size} - 1
+     * @return the product stored at this position of the index with its reviews
+     */
+    Map.Entry<Product, List<Review>> entryAt(int i) {
+        Cursor cursor = new Cursor(buffer, (int) buffer.getLong(index + Integer.BYTES + i * INDEX_ENTRY + Integer.BYTES));
+        Product product = cursor.product();
+        return Map.entry(product, cursor.reviews());
+    }
+
+    /**
+     * Reads the reviews of one product without reading the rest of the file: the index is
+     * searched with positional reads, then the record of the product alone is read.
+     * @return the reviews of the product with this id, empty when the catalogue has none
+     */
+    static List<Review> readReviews(Path file, int id) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(channel, header, 0, file);
+            checkHeader(size, header, file);
+            ByteBuffer word = ByteBuffer.allocate(Long.BYTES);
+            readFully(channel, word, size - Long.BYTES, file);
+            long index = word.getLong(0);
+            readFully(channel, word.clear().limit(Integer.BYTES), index, file);
+            int count = word.getInt(0);
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                readFully(channel, entry.clear(), index + Integer.BYTES + (long) mid * INDEX_ENTRY, file);
+                int midId = entry.getInt(0);
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    long offset = entry.getLong(Integer.BYTES);
+                    long end = index;
+                    if (mid + 1 < count) {
+                        readFully(channel, entry.clear(), index + Integer.BYTES + (long) (mid + 1) * INDEX_ENTRY, file);
+                        end = entry.getLong(Integer.BYTES);
+                    }
+                    ByteBuffer record = ByteBuffer.allocate((int) (end - offset));
+                    readFully(channel, record, offset, file);
+                    Cursor cursor = new Cursor(record, 0);
+                    cursor.product();
+                    return cursor.reviews();
+                }
+            }
+            return new ArrayList<>();
+        }
+    }
+
+    private static void checkHeader(long size, ByteBuffer buffer, Path file) throws IOException {
+        if (size < HEADER + Long.BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("not a version " + VERSION + " catalogue file: " + file);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path file) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("truncated catalogue file: " + file);
+            }
+            position += read;
+        }
+    }
+
+    /*
+     * Reads with absolute positions only, so a buffer can be shared between threads.
+     */
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private int pos;
+
+        private Cursor(ByteBuffer buffer, int pos) {
+            this.buffer = buffer;
+            this.pos = pos;
+        }
+
+        private byte readByte() {
+            return buffer.get(pos++);
+        }
+
+        private int readInt() {
+            int value = buffer.getInt(pos);
+            pos += Integer.BYTES;
+            return value;
+        }
+
+        private long readLong() {
+            long value = buffer.getLong(pos);
+            pos += Long.BYTES;
+            return value;
+        }
+
+        private byte[] readBytes() {
+            byte[] bytes = new byte[readInt()];
+            buffer.get(pos, bytes);
+            pos += bytes.length;
+            return bytes;
+        }
+
+        private String readString() {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        private Product product() {
+            byte type = readByte();
+            int id = readInt();
+            String name = readString();
+            int scale = readInt();
+            BigDecimal price = new BigDecimal(new BigInteger(readBytes()), scale);
+            Rating rating = Reatable.convert(readByte());
+            return type == 'F'
+                    ? new Food(id, name, price, rating, LocalDate.ofEpochDay(readLong()))
+                    : new Drink(id, name, price, rating);
+        }
+
+        private List<Review> reviews() {
+            int size = readInt();
+            List<Review> reviews = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Rating rating = Reatable.convert(readByte());
+                reviews.add(new Review(rating, readString()));
+            }
+            return reviews;
+        }
+    }
+
+    /**
+     * Writes a catalogue file, replacing {@code file} only once it is complete.
+     */
+    static void write(Path file, Map<Product, List<Review>> products) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".part");
+        List<Product> sorted = products.keySet().stream()
+                .sorted(Comparator.comparingInt(Product::getId))
+                .toList();
+        long[] offsets = new long[sorted.size()];
+        try (CountingOutput counter = new CountingOutput(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 20));
+             DataOutputStream out = new DataOutputStream(counter)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (int i = 0; i < sorted.size(); i++) {
+                Product product = sorted.get(i);
+                offsets[i] = counter.written;
+                out.writeByte(product instanceof Food ? 'F' : 'D');
+                out.writeInt(product.getId());
+                writeBytes(out, product.getName().getBytes(StandardCharsets.UTF_8));
+                out.writeInt(product.getPrice().scale());
+                writeBytes(out, product.getPrice().unscaledValue().toByteArray());
+                out.writeByte(product.getRating().ordinal());
+                if (product instanceof Food food) {
+                    out.writeLong(food.getBestBefore().toEpochDay());
+                }
+                List<Review> reviews = products.get(product);
+                out.writeInt(reviews.size());
+                for (Review review : reviews) {
+                    out.writeByte(review.rating().ordinal());
+                    writeBytes(out, review.comment().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            long indexOffset = counter.written;
+            out.writeInt(sorted.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                out.writeInt(sorted.get(i).getId());
+                out.writeLong(offsets[i]);
+            }
+            out.writeLong(indexOffset);
+            if (counter.written > Integer.MAX_VALUE) {
+                throw new IOException("catalogue larger than 2GB cannot be read");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static final class CountingOutput extends FilterOutputStream {
+        private long written;
+
+        private CountingOutput(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@code ChangePublisher} publishes the {@link ProductEvent}s of the catalogue to any number of
+ * subscribers, each at its own pace.
+ * <br>
+ * Every subscription has a bounded ring buffer that writers append to with a single compare and
+ * set, never waiting for the subscriber, and a virtual thread delivering the buffered events as
+ * the subscriber requests them. When the ring of a subscriber is full the newest event is dropped,
+ * or with the {@link Overflow#CONFLATE} policy the delivering thread keeps emptying the ring while
+ * the subscriber requests nothing, keeping only the latest pending event of each product.
+ * <br>
+ * Writers only ever pay for the subscriptions there are: with none, publishing is a single check.
+ * @version 4.0
+ * @author saade
+ **/
+final class ChangePublisher implements Flow.Publisher<ProductEvent> {
+    private static final Logger logger = Logger.getLogger(ChangePublisher.class.getName());
+
+    /**
+     * What a subscriber gets when it falls behind.
+     */
+    enum Overflow {
+        /** events that do not fit in its ring are dropped */
+        DROP,
+        /** events it has not requested yet are replaced by the next event of the same product */
+        CONFLATE
+    }
+
+    private final int capacity;
+    private final Overflow overflow;
+    private final LongAdder delivered;
+    private final LongAdder dropped;
+    private final LongAdder conflated;
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean closed;
+
+    /**
+     * @param capacity events buffered per subscriber, rounded up to a power of two
+     * @param overflow what subscribers get when they fall behind
+     */
+    ChangePublisher(int capacity, Overflow overflow, LongAdder delivered, LongAdder dropped, LongAdder conflated) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.overflow = overflow;
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.conflated = conflated;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ProductEvent> subscriber) {
+        Subscription subscription = new Subscription(Objects.requireNonNull(subscriber));
+        subscriptions.add(subscription);
+        if (closed) {
+            subscription.completed = true;
+        }
+        subscription.signal();
+    }
+
+    /**
+     * Publishes the creation of {@code product}, called by the thread that created it.
+     */
+    void created(Product product) {
+        if (!subscriptions.isEmpty()) {
+            offer(new ProductEvent.Created(sequence.incrementAndGet(), product));
+        }
+    }
+
+    /**
+     * Publishes the reviews added to a product, and the change of its rating if any.
+     * Called by the thread holding the lock of the product, so its events are in order.
+     * @param previous the product before the reviews
+     * @param product the product rated with the reviews
+     */
+    void reviewed(Product previous, Product product, List<Review> reviews) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        offer(new ProductEvent.Reviewed(sequence.incrementAndGet(), product, reviews));
+        if (previous.getRating() != product.getRating()) {
+            offer(new ProductEvent.Rated(sequence.incrementAndGet(), product, previous.getRating()));
+        }
+    }
+
+    private void offer(ProductEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Completes every subscription once its buffered events are delivered.
+     */
+    void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.completed = true;
+            subscription.signal();
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ProductEvent> subscriber;
+        /*
+         * Multiple writers, one reader: a writer claims slot tail by incrementing it, then fills it,
+         * the reader empties slot head before moving past it, so a slot behind head is always free.
+         */
+        private final AtomicReferenceArray<ProductEvent> ring = new AtomicReferenceArray<>(capacity);
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+        private final AtomicLong requested = new AtomicLong();
+        /*
+         * signals not yet handled by the delivering thread, which runs while it is not zero
+         */
+        private final AtomicInteger signals = new AtomicInteger();
+        /*
+         * latest event per product not requested yet, only used by the delivering thread
+         */
+        private final Map<Integer, ProductEvent> pending = new LinkedHashMap<>();
+        private boolean subscribed;
+        private volatile boolean cancelled;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private Subscription(Flow.Subscriber<? super ProductEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void offer(ProductEvent event) {
+            if (cancelled) {
+                return;
+            }
+            if (!enqueue(event)) {
+                dropped.increment();
+            }
+            signal();
+        }
+
+        private boolean enqueue(ProductEvent event) {
+            long claimed;
+            do {
+                claimed = tail.get();
+                if (claimed - head >= capacity) {
+                    return false;
+                }
+            } while (!tail.compareAndSet(claimed, claimed + 1));
+            ring.set((int) claimed & (capacity - 1), event);
+            return true;
+        }
+
+        /**
+         * @return the oldest event of the ring, {@code null} if it is empty
+         */
+        private ProductEvent poll() {
+            long first = head;
+            int slot = (int) first & (capacity - 1);
+            ProductEvent event = ring.get(slot);
+            if (event == null) {
+                if (tail.get() == first) {
+                    return null;
+                }
+                // claimed by a writer that is about to fill it
+                while ((event = ring.get(slot)) == null) {
+                    Thread.onSpinWait();
+                }
+            }
+            ring.set(slot, null);
+            head = first + 1;
+            return event;
+        }
+
+        /*
+         * Moves the ring to the pending events, replacing any older event of the same product.
+         */
+        private void conflate() {
+            for (ProductEvent event = poll(); event != null; event = poll()) {
+                if (pending.put(event.product().getId(), event) != null) {
+                    conflated.increment();
+                }
+            }
+        }
+
+        private ProductEvent next() {
+            if (overflow == Overflow.CONFLATE && !pending.isEmpty()) {
+                conflate();
+                Iterator<ProductEvent> oldest = pending.values().iterator();
+                ProductEvent event = oldest.next();
+                oldest.remove();
+                return event;
+            }
+            return poll();
+        }
+
+        private void signal() {
+            if (signals.getAndIncrement() == 0) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        /*
+         * Runs on one thread at a time, so the subscriber is never called concurrently.
+         */
+        private void deliver() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                if (error != null && !cancelled) {
+                    cancel();
+                    subscriber.onError(error);
+                }
+                long wanted = requested.get();
+                long sent = 0;
+                while (!cancelled) {
+                    if (sent == wanted) {
+                        if (overflow == Overflow.CONFLATE) {
+                            conflate();
+                        }
+                        break;
+                    }
+                    ProductEvent event = next();
+                    if (event == null) {
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, e, () -> "Subscriber " + subscriber + " failed, cancelled");
+                        cancel();
+                    }
+                    sent++;
+                }
+                if (sent > 0) {
+                    delivered.add(sent);
+                    if (wanted != Long.MAX_VALUE) {
+                        requested.addAndGet(-sent);
+                    }
+                }
+                if (completed && !cancelled && tail.get() == head && pending.isEmpty()) {
+                    cancel();
+                    subscriber.onComplete();
+                }
+                missed = signals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                requested.accumulateAndGet(n, (wanted, more) -> wanted + more < 0 ? Long.MAX_VALUE : wanted + more);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+    }
+}
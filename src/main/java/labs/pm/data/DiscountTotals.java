@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * {@code DiscountTotals} keeps the total discount of the catalogue per {@link Rating},
+ * in cents, so discounts are not recomputed product by product on every request.
+ * <br>
+ * A discount only applies inside a time window, so the totals are kept per window:
+ * one set for drinks, that counts during the happy hour, and one set per best before
+ * date for food, that counts on that day. {@link #totals totals} picks the sets that
+ * apply in a {@link PricingEngine.Window}, the boundaries are crossed by reading a different set
+ * rather than by updating anything.
+ * <br>
+ * Totals are adjusted under the lock of the product being changed and read without locking,
+ * a read racing a re-rating may count that product under its old rating.
+ * @version 4.0
+ * @author saade
+ **/
+final class DiscountTotals {
+    private static final int RATINGS = Rating.values().length;
+
+    private final LongAdder[] products = adders();
+    private final LongAdder[] drinks = adders();
+    private final Map<LocalDate, LongAdder[]> food = new ConcurrentHashMap<>();
+
+    private static LongAdder[] adders() {
+        return Stream.generate(LongAdder::new).limit(RATINGS).toArray(LongAdder[]::new);
+    }
+
+    /**
+     * @return the discount of a product inside its window, in cents
+     */
+    static long discountCents(Product product) {
+        return product.getFullDiscount().unscaledValue().longValueExact();
+    }
+
+    void add(Product product) {
+        adjust(product, product.getRating(), 1);
+    }
+
+    /**
+     * Moves the discount of a product from its previous rating to its new one.
+     */
+    void rated(Product previous, Product updated) {
+        if (previous.getRating() != updated.getRating()) {
+            adjust(previous, previous.getRating(), -1);
+            adjust(updated, updated.getRating(), 1);
+        }
+    }
+
+    private void adjust(Product product, Rating rating, int sign) {
+        int stars = rating.ordinal();
+        products[stars].add(sign);
+        LongAdder[] window = product instanceof Food item
+                ? food.computeIfAbsent(item.getBestBefore(), date -> adders())
+                : drinks;
+        window[stars].add(sign * discountCents(product));
+    }
+
+    /**
+     * @param window the discount rules that apply
+     * @return the total discount in cents per rating, for every rating that has products
+     */
+    Map<Rating, Long> totals(PricingEngine.Window window) {
+        boolean happyHour = window.happyHour();
+        LongAdder[] today = food.get(window.today());
+        Map<Rating, Long> totals = new EnumMap<>(Rating.class);
+        for (Rating rating : Rating.values()) {
+            int stars = rating.ordinal();
+            if (products[stars].sum() > 0) {
+                long cents = (happyHour ? drinks[stars].sum() : 0)
+                        + (today != null ? today[stars].sum() : 0);
+                totals.put(rating, cents);
+            }
+        }
+        return totals;
+    }
+
+    static BigDecimal amount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -15,16 +15,16 @@ import java.time.LocalTime;
  * @author saade
  **/
 public final class Drink extends Product {
+    static final LocalTime HAPPY_HOUR_START = LocalTime.of(17, 30);
+    static final LocalTime HAPPY_HOUR_END = LocalTime.of(18, 30);
+
     Drink(int id, String name, BigDecimal price, Rating rating) {
         super(id, name, price, rating);
     }
 
     @Override
     public BigDecimal getDiscount() {
-        LocalTime now = LocalTime.now();
-        return now.isAfter(LocalTime.of(17, 30)) &&
-                now.isBefore(LocalTime.of(18,30))
-                ? super.getDiscount() : BigDecimal.ZERO;
+        return PricingEngine.discount(this, PricingEngine.shared().window());
     }
 
     @Override
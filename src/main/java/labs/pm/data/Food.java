@@ -29,12 +29,11 @@ public final class Food extends Product{
 
     @Override
     public BigDecimal getDiscount() {
-        return (bestBefore.isEqual(LocalDate.now()))
-                ? super.getDiscount(): BigDecimal.ZERO;
+        return PricingEngine.discount(this, PricingEngine.shared().window());
     }
 
     @Override
     public Product applyRating(Rating newRating) {
-        return new Food(getId(), getName(), getPrice(), getRating(), bestBefore);
+        return new Food(getId(), getName(), getPrice(), newRating, bestBefore);
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * {@code IntHashMap} is an open addressing hash map keyed by primitive {@code int}
+ * values, used to look products up by id without boxing the keys.
+ * <br>
+ * Structural changes ({@link #put put} of a new key, {@link #remove remove},
+ * {@link #clear clear}) are not thread safe and callers are expected to guard them.
+ * {@link #replace replace} of an existing key may run concurrently with
+ * {@link #get get} and with other replacements, values are published with release/acquire semantics.
+ * @version 4.0
+ * @author saade
+ **/
+final class IntHashMap<V> {
+    private static final int FREE = 0;
+    private static final int USED = 1;
+    private static final int REMOVED = 2;
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private int[] keys;
+    private Object[] values;
+    private byte[] states;
+    private int size;
+    private int occupied;
+
+    IntHashMap() {
+        this(16);
+    }
+
+    IntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        states = new byte[capacity];
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (states[i] != FREE) {
+            if (states[i] == USED && keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int i = slot(key);
+        return i < 0 ? null : (V) VALUES.getAcquire(values, i);
+    }
+
+    V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    boolean containsKey(int key) {
+        return slot(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        int i = slot(key);
+        if (i >= 0) {
+            return (V) VALUES.getAndSetRelease(values, i, value);
+        }
+        if ((occupied + 1) > keys.length * LOAD_FACTOR) {
+            rehash(size + 1 > keys.length * LOAD_FACTOR / 2 ? keys.length << 1 : keys.length);
+        }
+        int mask = keys.length - 1;
+        i = mix(key) & mask;
+        while (states[i] == USED) {
+            i = (i + 1) & mask;
+        }
+        if (states[i] == FREE) {
+            occupied++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        states[i] = USED;
+        size++;
+        return null;
+    }
+
+    /**
+     * Replaces the value of a key already present in the map, without changing its structure
+     * @return the previous value, or {@code null} when the key is absent and nothing was stored
+     */
+    @SuppressWarnings("unchecked")
+    V replace(int key, V value) {
+        int i = slot(key);
+        return i < 0 ? null : (V) VALUES.getAndSetRelease(values, i, value);
+    }
+
+    V putIfAbsent(int key, V value) {
+        V current = get(key);
+        return current == null ? put(key, value) : current;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = slot(key);
+        if (i < 0) {
+            return null;
+        }
+        V previous = (V) values[i];
+        values[i] = null;
+        states[i] = REMOVED;
+        size--;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(states, (byte) FREE);
+        size = 0;
+        occupied = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (states[i] == USED) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        byte[] oldStates = states;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        states = new byte[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldStates[j] == USED) {
+                int i = mix(oldKeys[j]) & mask;
+                while (states[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                states[i] = USED;
+            }
+        }
+        occupied = size;
+    }
+}
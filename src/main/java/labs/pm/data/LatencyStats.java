@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import jdk.jfr.EventType;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code LatencyStats} counts the calls of one operation and keeps a histogram of their durations.
+ * <br>
+ * The histogram is log linear: every power of two of nanoseconds is split into eight buckets,
+ * so a percentile is known to within 12.5% of its value with a fixed 500 counters,
+ * and recording is a couple of atomic increments.
+ * <br>
+ * Reading the clock can cost more than the fastest operations themselves, so those can be
+ * timed one call in {@code sampleEvery} only: calls and errors are always counted, the histogram
+ * holds a random sample. While {@link OperationEvent}s are enabled in a flight recording
+ * every call is timed and committed as an event.
+ * @version 4.0
+ * @author saade
+ **/
+final class LatencyStats implements LatencyStatsMXBean {
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+    private static final EventType EVENT = EventType.getEventType(OperationEvent.class);
+
+    private final String name;
+    private final int sampleEvery;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    LatencyStats(String name, int sampleEvery) {
+        this.name = name;
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    String name() {
+        return name;
+    }
+
+    /*
+     * Values below 16 have a bucket each, larger ones keep their top four bits.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < LINEAR) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+    }
+
+    /**
+     * @return whether this call should be timed
+     */
+    boolean sample() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    /**
+     * Counts a call that took {@code nanos}.
+     */
+    void record(long nanos) {
+        calls.increment();
+        histogram(nanos);
+    }
+
+    /**
+     * Counts a call that was not timed.
+     */
+    void count() {
+        calls.increment();
+    }
+
+    private void histogram(long nanos) {
+        buckets.incrementAndGet(bucket(nanos));
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * @return the start of a call to pass to {@link #record(long, int, boolean) record},
+     * {@code 0} when the call is not timed
+     */
+    long start() {
+        return sample() || EVENT.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Counts a call, and times it when it started at {@code start} from {@link #start()}.
+     */
+    void record(long start, int productId, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        if (start == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        histogram(nanos);
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = name;
+            event.productId = productId;
+            event.elapsed = nanos;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long timed = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            timed += buckets.get(i);
+        }
+        return timed == 0 ? 0 : total.sum() / 1e3 / timed;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return the duration under which this percentage of the timed calls completed, in nanoseconds
+     */
+    long percentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentile(50) / 1e3;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return percentile(90) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentile(99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return percentile(99.9) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max.get() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        calls.reset();
+        errors.reset();
+        total.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count=%d errors=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                name, getCount(), getErrors(), getMeanMicros(), getP50Micros(), getP99Micros(),
+                getP999Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * {@code LockStallEvent} is the flight recorder event of a thread that waited longer than
+ * {@code metrics.stall.micros} for one of the product manager locks, with the stack of the waiter.
+ * @version 4.0
+ * @author saade
+ **/
+@Name("labs.pm.LockStall")
+@Label("Product Manager Lock Stall")
+@Category("Product Management")
+@Description("A long wait for a product manager lock")
+final class LockStallEvent extends Event {
+    @Label("Lock")
+    String lock;
+
+    @Label("Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long wait;
+}
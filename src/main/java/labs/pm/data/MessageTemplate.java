@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code MessageTemplate} is a {@link java.text.MessageFormat} pattern parsed once,
+ * for patterns whose arguments are plain {@code {n}} placeholders.
+ * <br>
+ * Quoting follows {@code MessageFormat}: {@code ''} is a single quote and text
+ * between single quotes is literal. Instances are immutable and thread safe,
+ * formatting only appends the literals and arguments to the given builder.
+ * @version 4.0
+ * @author saade
+ **/
+final class MessageTemplate {
+    private final String[] literals;
+    private final int[] arguments;
+
+    /**
+     * @throws IllegalArgumentException if a placeholder has a format type or style
+     */
+    MessageTemplate(String pattern) {
+        List<String> parts = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                    literal.append('\'');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == '{' && !quoted) {
+                int close = pattern.indexOf('}', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("unmatched braces in pattern " + pattern);
+                }
+                String argument = pattern.substring(i + 1, close).trim();
+                if (argument.isEmpty() || !argument.chars().allMatch(Character::isDigit)) {
+                    throw new IllegalArgumentException("unsupported argument {" + argument + "} in pattern " + pattern);
+                }
+                parts.add(literal.toString());
+                literal.setLength(0);
+                indexes.add(Integer.parseInt(argument));
+                i = close;
+            } else {
+                literal.append(c);
+            }
+        }
+        parts.add(literal.toString());
+        literals = parts.toArray(String[]::new);
+        arguments = indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    StringBuilder appendTo(StringBuilder out, Object... values) {
+        out.append(literals[0]);
+        for (int i = 0; i < arguments.length; i++) {
+            int argument = arguments[i];
+            if (argument < values.length) {
+                out.append(values[argument]);
+            } else {
+                out.append('{').append(argument).append('}');
+            }
+            out.append(literals[i + 1]);
+        }
+        return out;
+    }
+
+    String format(Object... values) {
+        return appendTo(new StringBuilder(), values).toString();
+    }
+}
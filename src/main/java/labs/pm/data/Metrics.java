@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * {@code Metrics} holds the counters and latency histograms of the product manager.
+ * <br>
+ * Each histogram is registered as a {@link LatencyStatsMXBean} and the counters as a
+ * {@link MetricsMXBean}, so they can be watched with any JMX console, and {@link #dumpEvery}
+ * logs all of them periodically. Counters and histograms only use striped or atomic
+ * increments, so they can be updated from every thread on every call.
+ * @version 4.0
+ * @author saade
+ **/
+final class Metrics implements MetricsMXBean {
+    private static final Logger logger = Logger.getLogger(Metrics.class.getName());
+    private static final String DOMAIN = "labs.pm";
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyStats> latencies = new ConcurrentHashMap<>();
+    private final long stallNanos;
+    private final int sampleEvery;
+
+    /**
+     * @param stallMicros lock waits at least this long are committed as {@link LockStallEvent}s
+     * @param sampleEvery one call in this many is timed for {@link #sampledLatency sampled} operations and locks
+     */
+    Metrics(long stallMicros, int sampleEvery) {
+        stallNanos = TimeUnit.MICROSECONDS.toNanos(stallMicros);
+        this.sampleEvery = sampleEvery;
+        register(DOMAIN + ":type=Metrics", this);
+    }
+
+    private static void register(String name, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Error while registering {0}: {1}", new Object[]{name, e.getMessage()});
+        }
+    }
+
+    LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * @return the statistics of an operation timed on every call
+     */
+    LatencyStats latency(String name) {
+        return latency(name, 1);
+    }
+
+    /**
+     * @return the statistics of an operation so fast that only a sample of its calls is timed
+     */
+    LatencyStats sampledLatency(String name) {
+        return latency(name, sampleEvery);
+    }
+
+    private LatencyStats latency(String name, int every) {
+        return latencies.computeIfAbsent(name, key -> {
+            LatencyStats stats = new LatencyStats(key, every);
+            register(DOMAIN + ":type=Latency,name=" + ObjectName.quote(key), stats);
+            return stats;
+        });
+    }
+
+    /**
+     * @return {@code lock} measuring its wait and hold times as {@code <name>.wait} and {@code <name>.hold}
+     */
+    Lock timed(Lock lock, String name) {
+        return new TimedLock(lock, name, sampledLatency(name + ".wait"), sampledLatency(name + ".hold"), stallNanos);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return counters.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum(),
+                        (a, b) -> a, TreeMap::new));
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        getCounters().forEach((name, value) -> out.append(name).append('=').append(value).append('\n'));
+        new TreeMap<>(latencies).values().forEach(stats -> out.append(stats).append('\n'));
+        return out.toString();
+    }
+
+    /**
+     * Logs {@link #dump()} every {@code seconds} seconds from a daemon thread, never when zero.
+     */
+    void dumpEvery(long seconds) {
+        if (seconds <= 0) {
+            return;
+        }
+        Executors.newSingleThreadScheduledExecutor(task -> Thread.ofPlatform()
+                        .daemon()
+                        .name("metrics-dump")
+                        .unstarted(task))
+                .scheduleAtFixedRate(() -> logger.log(Level.INFO, () -> "Metrics\n" + dump()),
+                        seconds, seconds, TimeUnit.SECONDS);
+    }
+}
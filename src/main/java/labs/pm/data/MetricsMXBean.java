@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.Map;
+
+/**
+ * {@code MetricsMXBean} is the JMX view of the counters of the product manager,
+ * registered as {@code labs.pm:type=Metrics}.
+ * @version 4.0
+ * @author saade
+ **/
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    /**
+     * @return one line per counter and per latency, as written by the periodic dump
+     */
+    String dump();
+}
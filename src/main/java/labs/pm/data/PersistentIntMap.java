@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * {@code PersistentIntMap} is an immutable hash trie keyed by primitive {@code int} values.
+ * <br>
+ * {@link #put put} never modifies the map, it copies the path to the changed entry
+ * (at most seven nodes of up to 32 slots) and shares everything else with the previous version,
+ * so a published map is a consistent point in time view that can be read without locking.
+ * @version 4.0
+ * @author saade
+ **/
+final class PersistentIntMap<V> {
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(new Node(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    private record Leaf(int key, Object value) {}
+
+    private record Node(int bitmap, Object[] slots) {}
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int hash = mix(key);
+        Node node = root;
+        for (int shift = 0; ; shift += 5) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (slot instanceof Leaf leaf) {
+                return leaf.key == key ? (V) leaf.value : null;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    PersistentIntMap<V> put(int key, V value) {
+        boolean[] added = new boolean[1];
+        Node updated = put(root, mix(key), 0, new Leaf(key, value), added);
+        return new PersistentIntMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    private static Node put(Node node, int hash, int shift, Leaf leaf, boolean[] added) {
+        int bit = 1 << ((hash >>> shift) & 31);
+        int idx = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, idx);
+            System.arraycopy(node.slots, idx, slots, idx + 1, node.slots.length - idx);
+            slots[idx] = leaf;
+            added[0] = true;
+            return new Node(node.bitmap | bit, slots);
+        }
+        Object slot = node.slots[idx];
+        Object replacement;
+        if (slot instanceof Node child) {
+            replacement = put(child, hash, shift + 5, leaf, added);
+        } else if (((Leaf) slot).key == leaf.key) {
+            replacement = leaf;
+        } else {
+            Leaf existing = (Leaf) slot;
+            Node split = put(new Node(0, new Object[0]), mix(existing.key), shift + 5, existing, new boolean[1]);
+            replacement = put(split, hash, shift + 5, leaf, added);
+        }
+        Object[] slots = Arrays.copyOf(node.slots, node.slots.length);
+        slots[idx] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Stream<V> values() {
+        return values(root);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Stream<V> values(Node node) {
+        return Arrays.stream(node.slots)
+                .flatMap(slot -> slot instanceof Node child
+                        ? values(child)
+                        : Stream.of((V) ((Leaf) slot).value));
+    }
+
+    static <V> PersistentIntMap<V> of(Iterable<V> values, ToIntFunction<V> key) {
+        PersistentIntMap<V> map = empty();
+        for (V value : values) {
+            map = map.put(key.applyAsInt(value), value);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * {@code PricingEngine} decides which discounts apply, reading time from a {@link Clock}.
+ * <br>
+ * The discount rules only depend on the day and on whether it is happy hour, so a day
+ * splits into a few time buckets (before, during and after the happy hour) inside which
+ * every rule gives the same answer. The engine evaluates the rules once per bucket into a
+ * {@link Window}, which a whole batch of products can then be priced against, and reuses it
+ * until the clock leaves the bucket.
+ * <br>
+ * The full discount of each product is computed once, when the product is created.
+ * <br>
+ * There is one engine, {@link #shared()}, so the discount of each product and the discount
+ * totals of the product manager always read the same clock, whichever one is set.
+ * @version 4.0
+ * @author saade
+ **/
+final class PricingEngine {
+    private static final PricingEngine SHARED = new PricingEngine(Clock.systemDefaultZone());
+
+    /*
+     * the rules evaluated last and the clock they were evaluated with
+     */
+    private record Evaluated(Clock clock, Window window) {}
+
+    private volatile Clock clock;
+    private volatile Evaluated current;
+
+    /**
+     * The discount rules as they stand from {@code from} (inclusive) to {@code until} (exclusive).
+     * @param today the day, food is discounted on its best before date
+     * @param happyHour whether drinks are discounted
+     */
+    record Window(LocalDate today, boolean happyHour, Instant from, Instant until) {
+        boolean contains(Instant instant) {
+            return !instant.isBefore(from) && instant.isBefore(until);
+        }
+    }
+
+    private PricingEngine(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * @return the engine used by {@link Product#getDiscount()} and the product manager,
+     * on the system clock and time zone unless {@link #setClock another clock} is set
+     */
+    static PricingEngine shared() {
+        return SHARED;
+    }
+
+    /**
+     * Reads time from {@code clock} from now on, rules evaluated with the previous clock are not reused.
+     */
+    void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * @return the rules that apply now, evaluated again only when a bucket boundary has been crossed
+     */
+    Window window() {
+        Clock reading = clock;
+        Instant now = reading.instant();
+        Evaluated evaluated = current;
+        if (evaluated == null || evaluated.clock() != reading || !evaluated.window().contains(now)) {
+            evaluated = new Evaluated(reading, evaluate(now, reading.getZone()));
+            current = evaluated;
+        }
+        return evaluated.window();
+    }
+
+    private static Window evaluate(Instant now, ZoneId zone) {
+        ZonedDateTime time = now.atZone(zone);
+        LocalDate today = time.toLocalDate();
+        LocalTime start = Drink.HAPPY_HOUR_START;
+        LocalTime end = Drink.HAPPY_HOUR_END;
+        LocalTime localTime = time.toLocalTime();
+        // the happy hour excludes both of its ends, so it starts one nanosecond after HAPPY_HOUR_START
+        if (!localTime.isAfter(start)) {
+            return new Window(today, false,
+                    today.atStartOfDay(zone).toInstant(),
+                    today.atTime(start).atZone(zone).toInstant().plusNanos(1));
+        }
+        if (localTime.isBefore(end)) {
+            return new Window(today, true,
+                    today.atTime(start).atZone(zone).toInstant().plusNanos(1),
+                    today.atTime(end).atZone(zone).toInstant());
+        }
+        return new Window(today, false,
+                today.atTime(end).atZone(zone).toInstant(),
+                today.plusDays(1).atStartOfDay(zone).toInstant());
+    }
+
+    /**
+     * @return the discount of a product under the rules of {@code window}
+     */
+    static BigDecimal discount(Product product, Window window) {
+        return applies(product, window) ? product.getFullDiscount() : BigDecimal.ZERO;
+    }
+
+    /**
+     * @return whether the discount of a product applies under the rules of {@code window}
+     */
+    static boolean applies(Product product, Window window) {
+        return switch (product) {
+            case Food food -> food.getBestBefore().isEqual(window.today());
+            case Drink drink -> window.happyHour();
+        };
+    }
+}
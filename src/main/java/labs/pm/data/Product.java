@@ -28,12 +28,14 @@ public sealed abstract class Product implements Reatable<Product>, Serializable
     private final String name;
     private final BigDecimal price;
     private final Rating rating;
+    private final BigDecimal discount;
 
     Product(int id, String name, BigDecimal price, Rating rating) {
         this.id = id;
         this.name = name;
         this.price = price;
         this.rating = rating;
+        this.discount = price.multiply(DISCOUNT_RATE).setScale(2, BigDecimal.ROUND_HALF_UP);
     }
 
     public static final BigDecimal DISCOUNT_RATE = BigDecimal.valueOf(0.1);
@@ -54,7 +56,14 @@ public sealed abstract class Product implements Reatable<Product>, Serializable
 
 
     public BigDecimal getDiscount(){
-        return price.multiply(DISCOUNT_RATE).setScale(2, BigDecimal.ROUND_HALF_UP);
+        return discount;
+    }
+
+    /*
+     * @return the discount when it applies, computed once at construction
+     */
+    final BigDecimal getFullDiscount() {
+        return discount;
     }
 
     public Rating getRating() {return rating;}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.List;
+
+/**
+ * {@code ProductEvent} is a change of the catalogue, as published by {@link ProductManager#getChanges()}.
+ * <br>
+ * Events are numbered in the order they were published, so a subscriber can tell from a gap
+ * in the numbers that events were dropped or conflated. The events of a product are always
+ * delivered in the order they happened.
+ * @version 4.0
+ * @author saade
+ **/
+public sealed interface ProductEvent {
+    /**
+     * @return number of the event, increasing in the order events were published
+     */
+    long sequence();
+
+    /**
+     * @return the product as it is after the change
+     */
+    Product product();
+
+    /**
+     * {@code Created} is published when a product is added to the catalogue.
+     * @param sequence number of the event
+     * @param product the new product
+     */
+    record Created(long sequence, Product product) implements ProductEvent {}
+
+    /**
+     * {@code Reviewed} is published when reviews are added to a product, once per product of a batch.
+     * @param sequence number of the event
+     * @param product the product rated with the added reviews
+     * @param reviews the added reviews
+     */
+    record Reviewed(long sequence, Product product, List<Review> reviews) implements ProductEvent {}
+
+    /**
+     * {@code Rated} follows the {@link Reviewed} event of reviews that changed the rating of a product.
+     * @param sequence number of the event
+     * @param product the product with its new rating
+     * @param previous the rating before the reviews
+     */
+    record Rated(long sequence, Product product, Rating previous) implements ProductEvent {}
+}
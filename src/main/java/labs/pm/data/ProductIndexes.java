@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@code ProductIndexes} are the secondary indexes of the catalogue:
+ * product ids per {@link Rating}, products sorted by price and food sorted by best before date.
+ * <br>
+ * Every structure is concurrent, so indexes are updated under the lock of the product
+ * being changed and read without locking. Queries return ids, callers resolve them against
+ * the published catalogue and check the condition again, since a product changing rating
+ * is briefly in both buckets.
+ * @version 4.0
+ * @author saade
+ **/
+final class ProductIndexes {
+    private final Set<Integer>[] byRating;
+    private final ConcurrentSkipListSet<Product> byPrice = new ConcurrentSkipListSet<>(
+            Comparator.comparing(Product::getPrice).thenComparingInt(Product::getId));
+    private final ConcurrentSkipListSet<Food> byBestBefore = new ConcurrentSkipListSet<>(
+            Comparator.comparing(Food::getBestBefore).thenComparingInt(Product::getId));
+
+    @SuppressWarnings("unchecked")
+    ProductIndexes() {
+        byRating = Stream.generate(ConcurrentHashMap::<Integer>newKeySet)
+                .limit(Rating.values().length)
+                .toArray(Set[]::new);
+    }
+
+    void add(Product product) {
+        byRating[product.getRating().ordinal()].add(product.getId());
+        byPrice.add(product);
+        if (product instanceof Food food) {
+            byBestBefore.add(food);
+        }
+    }
+
+    /**
+     * Moves a product to the bucket of its new rating, price and date never change.
+     */
+    void rated(Product previous, Product updated) {
+        if (previous.getRating() != updated.getRating()) {
+            byRating[updated.getRating().ordinal()].add(updated.getId());
+            byRating[previous.getRating().ordinal()].remove(previous.getId());
+        }
+    }
+
+    IntStream ratedAtLeast(Rating rating) {
+        return IntStream.range(rating.ordinal(), byRating.length)
+                .flatMap(stars -> byRating[stars].stream().mapToInt(Integer::intValue))
+                .distinct();
+    }
+
+    IntStream pricedBetween(BigDecimal min, BigDecimal max) {
+        if (min.compareTo(max) > 0) {
+            return IntStream.empty();
+        }
+        return byPrice.subSet(new Drink(Integer.MIN_VALUE, null, min, null), true,
+                        new Drink(Integer.MAX_VALUE, null, max, null), true)
+                .stream()
+                .mapToInt(Product::getId);
+    }
+
+    IntStream bestBefore(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return IntStream.empty();
+        }
+        return byBestBefore.subSet(new Food(Integer.MIN_VALUE, null, BigDecimal.ZERO, null, from), true,
+                        new Food(Integer.MAX_VALUE, null, BigDecimal.ZERO, null, to), true)
+                .stream()
+                .mapToInt(Product::getId);
+    }
+}
@@ -14,24 +14,40 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.time.Clock;
 import java.time.DateTimeException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.time.format.FormatStyle;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * @author saade
@@ -39,13 +55,69 @@ import java.util.stream.Collectors;
 public class ProductManager {
 //    private Product product;
 //    private Review[] reviews = new Review[5];
-    private Map<Product, List<Review>> products = new HashMap<>();
+    private Map<Product, ReviewHistory> products = new ConcurrentHashMap<>();
+    private IntHashMap<Product> index = new IntHashMap<>();
+    private IntHashMap<RatingSummary> summaries = new IntHashMap<>();
+    private volatile ProductIndexes indexes = new ProductIndexes();
+    private volatile DiscountTotals discounts = new DiscountTotals();
+    private volatile TextIndex text = new TextIndex();
+    private final PricingEngine pricing = PricingEngine.shared();
+    /*
+     * Immutable point in time view of the catalogue, republished by every create and review,
+     * catalogue wide queries read it without taking any lock.
+     */
+    private final AtomicReference<PersistentIntMap<CatalogueEntry>> catalogue =
+            new AtomicReference<>(PersistentIntMap.empty());
+    /*
+     * Settings from config.properties, a system property of the same name takes precedence,
+     * e.g. -Ddata.folder=... to run against another catalogue.
+     */
+    private final ResourceBundle config = new ResourceBundle() {
+        private final ResourceBundle defaults = ResourceBundle.getBundle("config");
+
+        @Override
+        protected Object handleGetObject(String key) {
+            String value = System.getProperty(key);
+            return value != null || !defaults.containsKey(key) ? value : defaults.getObject(key);
+        }
+
+        @Override
+        public Enumeration<String> getKeys() {
+            return defaults.getKeys();
+        }
+    };
+    private final Metrics metrics = new Metrics(Long.parseLong(config.getString("metrics.stall.micros")),
+            Integer.parseInt(config.getString("metrics.sample.every")));
+    private final LatencyStats findTimer = metrics.sampledLatency("findProduct");
+    private final LatencyStats reviewTimer = metrics.latency("reviewProduct");
+    private final LatencyStats batchTimer = metrics.latency("reviewProducts");
+    private final LatencyStats reportTimer = metrics.latency("printProductReport");
+    private final LatencyStats renderTimer = metrics.latency("renderReport");
+    private final LatencyStats discountsTimer = metrics.latency("getDiscounts");
+    private final LatencyStats listTimer = metrics.latency("printProducts");
+    private final LatencyStats queryTimer = metrics.latency("findProducts");
+    private final LatencyStats searchTimer = metrics.latency("searchProducts");
+    private final LatencyStats loadTimer = metrics.latency("loadAllData");
+    private final LatencyStats dumpTimer = metrics.latency("dumpData");
+    private final LatencyStats restoreTimer = metrics.latency("restoreData");
+    private final LongAdder productsCreated = metrics.counter("products.created");
+    private final LongAdder reviewsAdded = metrics.counter("reviews.added");
+    private final LongAdder reviewsReplayed = metrics.counter("reviews.replayed");
+    private final LongAdder parseErrors = metrics.counter("parse.errors");
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final Lock readLock = lock.readLock();
-    private final Lock writeLock = lock.writeLock();
-    private final ResourceBundle config = ResourceBundle.getBundle("config");
-    private final MessageFormat productFormat = new MessageFormat(config.getString("product.data.format"));
-    private final MessageFormat reviewFormat = new MessageFormat(config.getString("review.data.format"));
+    private final Lock readLock = metrics.timed(lock.readLock(), "readLock");
+    private final Lock writeLock = metrics.timed(lock.writeLock(), "writeLock");
+    /*
+     * The read/write lock guards the structure of the catalogue: adding products and
+     * reloading it take the write lock, everything else takes the read lock.
+     * Changes to an existing product are serialized by the stripe its id hashes to,
+     * so reviews of unrelated products proceed in parallel.
+     */
+    private final Lock[] stripes = Stream.generate(() -> metrics.timed(new ReentrantLock(), "stripe"))
+            .limit(64)
+            .toArray(Lock[]::new);
+    private final RecordCodec productCodec = new RecordCodec(config.getString("product.data.format"));
+    private final RecordCodec reviewCodec = new RecordCodec(config.getString("review.data.format"));
     private final static Map<String, ResourceFormatter> formatters =
             Map.of("en-GB", new ResourceFormatter(Locale.UK),
                     "en-US", new ResourceFormatter(Locale.US),
@@ -60,44 +132,100 @@ public class ProductManager {
             Path.of(config.getString("data.folder"));
     private final Path tempFolder =
             Path.of(config.getString("temp.folder"));
+    private final Path catalogueFile =
+            dataFolder.resolve(config.getString("catalogue.file"));
+    private final RecordCodec reviewLogCodec = new RecordCodec(config.getString("review.log.format"));
+    private final Path reviewLogFile =
+            dataFolder.resolve(config.getString("review.log.file"));
+    private final Path reviewLogSegment =
+            reviewLogFile.resolveSibling(reviewLogFile.getFileName() + ".compacting");
+    private final Path reviewLogCompacted =
+            reviewLogFile.resolveSibling(reviewLogFile.getFileName() + ".compacted");
+    private ReviewLog reviewLog;
+    private final ReportCache reportCache = new ReportCache(
+            Long.parseLong(config.getString("report.cache.bytes")));
+    /*
+     * With a budget, only product metadata, rating summaries and reviews added since loading
+     * stay in memory, the reviews in the data files are read back when a report needs them.
+     */
+    private final ReviewStore reviewStore = Long.parseLong(config.getString("review.store.bytes")) > 0
+            ? new ReviewStore(Long.parseLong(config.getString("review.store.bytes")), this::readReviews)
+            : null;
+    private final ReportService reports = new ReportService(
+            Integer.parseInt(config.getString("report.queue.capacity")),
+            Integer.parseInt(config.getString("report.writers")));
+    private final ChangePublisher changes = new ChangePublisher(
+            Integer.parseInt(config.getString("changes.buffer")),
+            ChangePublisher.Overflow.valueOf(config.getString("changes.overflow").toUpperCase(Locale.ROOT)),
+            metrics.counter("changes.delivered"),
+            metrics.counter("changes.dropped"),
+            metrics.counter("changes.conflated"));
+    /*
+     * Patterns are parsed once and the money format is cloned per thread,
+     * so one formatter per locale is shared by every client thread.
+     */
     private static class ResourceFormatter{
-        private Locale locale;
-        private ResourceBundle resources;
-        private DateTimeFormatter dateFormat;
-        private NumberFormat moneyFormat;
+        private final Locale locale;
+        private final ResourceBundle resources;
+        private final DateTimeFormatter dateFormat;
+        private final ThreadLocal<NumberFormat> moneyFormat;
+        private final MessageTemplate productTemplate;
+        private final MessageTemplate reviewTemplate;
+        private final String foodText;
+        private final String drinkText;
 
         private ResourceFormatter(Locale locale){
             this.locale = locale;
             resources = ResourceBundle.getBundle("resources", locale);
             dateFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).localizedBy(locale);
-            moneyFormat = NumberFormat.getCurrencyInstance(locale);
+            NumberFormat money = NumberFormat.getCurrencyInstance(locale);
+            moneyFormat = ThreadLocal.withInitial(() -> (NumberFormat) money.clone());
+            productTemplate = new MessageTemplate(resources.getString("product"));
+            reviewTemplate = new MessageTemplate(resources.getString("review"));
+            foodText = resources.getString("food");
+            drinkText = resources.getString("drink");
         }
-        private String formatProduct(Product product){
+        private StringBuilder appendProduct(StringBuilder out, Product product){
             String type = switch (product){
-                case Food food -> resources.getString("food");
-                case Drink drink -> resources.getString("drink");
+                case Food food -> foodText;
+                case Drink drink -> drinkText;
             };
-            return MessageFormat.format(resources.getString("product"),
+            return productTemplate.appendTo(out,
                     product.getName(),
-                    moneyFormat.format(product.getPrice()),
+                    formatMoney(product.getPrice()),
                     product.getRating().getStars(),
                     dateFormat.format(product.getBestBefore()),
                     type);
         }
-        private String formatReview(Review review){
-            return MessageFormat.format(resources.getString("review"),
+        private String formatProduct(Product product){
+            return appendProduct(new StringBuilder(), product).toString();
+        }
+        private StringBuilder appendReview(StringBuilder out, Review review){
+            return reviewTemplate.appendTo(out,
                     review.rating().getStars(),
                     review.comment());
         }
+        private String formatReview(Review review){
+            return appendReview(new StringBuilder(), review).toString();
+        }
+        private String formatMoney(Object amount){
+            return moneyFormat.get().format(amount);
+        }
 
         private String getText(String key){
             return resources.getString(key);
         }
     }
     // private ResourceFormatter formatter;
-    private static final ProductManager pm = new ProductManager();
+    /*
+     * The instance is created in a holder class so that ProductManager itself is fully
+     * initialized before loadAllData hands work (and lambdas) to other threads.
+     */
+    private static class Holder {
+        private static final ProductManager pm = new ProductManager();
+    }
     public static ProductManager getInstance(){
-        return pm;
+        return Holder.pm;
     }
     public ResourceFormatter changeLocale(String languageTag){
         return formatters.getOrDefault(languageTag, formatters.get("ar-MA"));
@@ -107,7 +235,12 @@ public class ProductManager {
         return formatters.keySet();
     }
     private ProductManager() {
+        recoverCompaction();
         loadAllData();
+        openReviewLog();
+        Runtime.getRuntime().addShutdownHook(new Thread(reports::close));
+        Runtime.getRuntime().addShutdownHook(new Thread(changes::close));
+        metrics.dumpEvery(Long.parseLong(config.getString("metrics.dump.seconds")));
     }
 
     public Product createProduct(int id, String name, BigDecimal price, Rating rating, LocalDate bestBefore) {
@@ -115,9 +248,18 @@ public class ProductManager {
         try {
             writeLock.lock();
             product = new Food(id, name, price, rating, bestBefore);
-            products.putIfAbsent(product, new ArrayList<>());
+            if (products.putIfAbsent(product, new ReviewHistory()) == null) {
+                index.put(id, product);
+                summaries.put(id, RatingSummary.EMPTY);
+                indexes.add(product);
+                discounts.add(product);
+                text.add(id, name);
+                publish(new CatalogueEntry(product, List.of(), RatingSummary.EMPTY));
+                changes.created(product);
+                productsCreated.increment();
+            }
         }catch (Exception e){
-            logger.log(Level.INFO, "Error creating product", e.getMessage());
+            logger.log(Level.INFO, "Error creating product {0}: {1}", new Object[]{id, e.getMessage()});
             return null;
         }
         finally {
@@ -130,224 +272,853 @@ public class ProductManager {
         try {
             writeLock.lock();
             product = new Drink(id, name, price, rating);
-            products.putIfAbsent(product, new ArrayList<>());
+            if (products.putIfAbsent(product, new ReviewHistory()) == null) {
+                index.put(id, product);
+                summaries.put(id, RatingSummary.EMPTY);
+                indexes.add(product);
+                discounts.add(product);
+                text.add(id, name);
+                publish(new CatalogueEntry(product, List.of(), RatingSummary.EMPTY));
+                changes.created(product);
+                productsCreated.increment();
+            }
         }catch (Exception e){
-            logger.log(Level.INFO, "Error creating product", e.getMessage());
+            logger.log(Level.INFO, "Error creating product {0}: {1}", new Object[]{id, e.getMessage()});
         }finally {
             writeLock.unlock();
         }
         return product;
     }
+    private int stripeIndex(int id){
+        return (id ^ (id >>> 16)) & (stripes.length - 1);
+    }
+    private Lock stripe(int id){
+        return stripes[stripeIndex(id)];
+    }
     public Product reviewProduct(int id, Rating rating, String comment){
+        Objects.requireNonNull(rating);
+        Objects.requireNonNull(comment);
+        long start = reviewTimer.start();
+        Lock stripe = stripe(id);
+        Product product = null;
         try {
-            writeLock.lock();
-            return reviewProduct(findProduct(id), rating, comment);
+            readLock.lock();
+            stripe.lock();
+            product = reviewProduct(product(id), rating, comment);
+            if (reviewLog != null) {
+                reviewLog.append(id, rating, comment);
+            }
+            return product;
         } catch (ProductManagerException e) {
             logger.log(Level.INFO, e.getMessage());
             return null;
         }finally {
-            writeLock.unlock();
+            stripe.unlock();
+            readLock.unlock();
+            reviewTimer.record(start, id, product == null);
+        }
+    }
+    /**
+     * Applies a batch of reviews, all of them under one read lock and each stripe locked once.
+     * <br>
+     * The reviews of a product are added together, with one rating update, one republished
+     * catalogue entry and one write to the review log per stripe, so a batch costs much less
+     * than a call of {@link #reviewProduct(int, Rating, String)} per review.
+     * @return a result per command, in the order of {@code commands}; the reviews of
+     * an unknown product fail and the others are applied
+     */
+    public List<ReviewCommand.Result> reviewProducts(Collection<ReviewCommand> commands){
+        long start = batchTimer.start();
+        List<ReviewCommand> batch = List.copyOf(commands);
+        ReviewCommand.Result[] results = new ReviewCommand.Result[batch.size()];
+        Map<Integer, List<ReviewCommand>> byProduct = batch.stream()
+                .collect(Collectors.groupingBy(ReviewCommand::productId, LinkedHashMap::new, Collectors.toList()));
+        Map<Integer, List<Integer>> byStripe = byProduct.keySet().stream()
+                .collect(Collectors.groupingBy(this::stripeIndex));
+        Map<Integer, Product> reviewed = new HashMap<>();
+        int failed = 0;
+        try {
+            readLock.lock();
+            for (Map.Entry<Integer, List<Integer>> group : byStripe.entrySet()) {
+                Lock stripe = stripes[group.getKey()];
+                List<CatalogueEntry> entries = new ArrayList<>();
+                List<ReviewLog.Entry> logged = new ArrayList<>();
+                try {
+                    stripe.lock();
+                    for (int id : group.getValue()) {
+                        Product product = index.get(id);
+                        if (product == null) {
+                            continue;
+                        }
+                        List<ReviewCommand> reviews = byProduct.get(id);
+                        CatalogueEntry entry = reviewProduct(product, reviews.stream()
+                                .map(command -> new Review(command.rating(), command.comment()))
+                                .toList());
+                        entries.add(entry);
+                        reviewed.put(id, entry.product());
+                        reviews.forEach(command -> logged.add(
+                                new ReviewLog.Entry(id, command.rating(), command.comment())));
+                    }
+                    publish(entries);
+                    if (reviewLog != null) {
+                        reviewLog.append(logged);
+                    }
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        } finally {
+            readLock.unlock();
+            for (int i = 0; i < results.length; i++) {
+                ReviewCommand command = batch.get(i);
+                Product product = reviewed.get(command.productId());
+                results[i] = new ReviewCommand.Result(command, product,
+                        product == null ? "product " + command.productId() + " not found" : null);
+                if (product == null) {
+                    failed++;
+                }
+            }
+            batchTimer.record(start, 0, failed > 0);
         }
+        if (failed > 0) {
+            logger.log(Level.INFO, "{0} of {1} reviews failed, their products were not found",
+                    new Object[]{failed, batch.size()});
+        }
+        return List.of(results);
     }
     private Product reviewProduct(Product product, Rating rating, String comment) {
-        List<Review> reviews = products.get(product);
-        products.remove(product,reviews);
-        reviews.add(new Review(rating, comment));
-        product = product.applyRating(Reatable.convert(
-                (int)Math.round(
-                        reviews.stream()
-                                .mapToInt(r->r.rating().ordinal())
-                                .average()
-                                .orElse(0)
-                )
-        ));
+        CatalogueEntry entry = reviewProduct(product, List.of(new Review(rating, comment)));
+        publish(entry);
+        return entry.product();
+    }
+    /*
+     * Callers hold the stripe of the product and publish the returned entry.
+     * Everything that can fail on a bad review, e.g. a null rating, is done before any structure
+     * is changed, and the previous key of products is only removed right before the rated
+     * product is put, since a put with an equal key would keep the previous one.
+     */
+    private CatalogueEntry reviewProduct(Product product, List<Review> added) {
+        ReviewHistory reviews = products.get(product);
+        RatingSummary summary = summaries.getOrDefault(product.getId(), RatingSummary.EMPTY).addAll(added);
+        Product previous = product;
+        product = product.applyRating(summary.getRating());
+        reviews.addAll(added);
+        reviewsAdded.add(added.size());
+        for (Review review : added) {
+            text.add(product.getId(), review.comment());
+        }
+        products.remove(previous);
         products.put(product, reviews);
-        return product;
+        indexes.rated(previous, product);
+        discounts.rated(previous, product);
+        index.replace(product.getId(), product);
+        summaries.replace(product.getId(), summary);
+        reportCache.invalidate(product.getId(), formatters.keySet());
+        changes.reviewed(previous, product, added);
+        return new CatalogueEntry(product, published(product.getId(), reviews, summary), summary);
+    }
+    /*
+     * The reviews of a product as published: those in memory, after the ones left in the
+     * data files when there is a review store.
+     */
+    private List<Review> published(int id, ReviewHistory reviews, RatingSummary summary) {
+        return reviewStore == null ? reviews.view()
+                : reviewStore.reviews(id, summary.getCount() - reviews.size(), reviews.view());
     }
-    private void printProductReport(Product product, String languageTag, String client) throws IOException {
+    private void publish(CatalogueEntry entry){
+        catalogue.updateAndGet(snapshot -> snapshot.put(entry.product().getId(), entry));
+    }
+    private void publish(List<CatalogueEntry> entries){
+        if (entries.isEmpty()) {
+            return;
+        }
+        catalogue.updateAndGet(snapshot -> {
+            for (CatalogueEntry entry : entries) {
+                snapshot = snapshot.put(entry.product().getId(), entry);
+            }
+            return snapshot;
+        });
+    }
+    private String renderReport(CatalogueEntry entry, String languageTag) {
         ResourceFormatter formatter = changeLocale(languageTag);
-        List<Review> reviews = products.get(product);
-        Collections.sort(reviews);
+        StringBuilder txt = new StringBuilder();
+        formatter.appendProduct(txt, entry.product()).append(System.lineSeparator());
+        if (entry.reviews().isEmpty()) {
+            txt.append(formatter.getText("no.reviews")).append(System.lineSeparator());
+        }
+        else {
+            entry.reviews().stream()
+                    .sorted()
+                    .forEach(review -> formatter.appendReview(txt, review).append(System.lineSeparator()));
+        }
+        return txt.toString();
+    }
+    /**
+     * Queues the report of a product for a client and returns without waiting for it to be written.
+     * The report shows the product as it is when this method is called.
+     * @return completed with the report file once it is written,
+     * or with {@code null} if there is no such product
+     */
+    public CompletableFuture<Path> printProductReport(int id, String languageTag, String client) {
+        long start = reportTimer.start();
+        String language = formatters.containsKey(languageTag) ? languageTag : "ar-MA";
+        CatalogueEntry entry = catalogue.get().get(id);
+        if (entry == null) {
+            logger.log(Level.INFO, "product {0} not found", id);
+            reportTimer.record(start, id, true);
+            return CompletableFuture.completedFuture(null);
+        }
         Path productFile = reportsFolder.resolve(
                 MessageFormat.format(
-                        config.getString("report.file"),product.getId(),client
+                        config.getString("report.file"),id,client
                 )
         );
-        try(PrintWriter out = new PrintWriter(
-                new OutputStreamWriter(
-                        Files.newOutputStream(productFile, StandardOpenOption.CREATE),
-                        StandardCharsets.UTF_8)))
-        {
-            out.append(formatter.formatProduct(product)).append(System.lineSeparator());
-            if (reviews.isEmpty()) {
-                out.append(formatter.getText("no.reviews")).append(System.lineSeparator());
-            }
-            else {
-                out.append(reviews.stream()
-                        .map(review -> formatter.formatReview(review)+System.lineSeparator()).collect(Collectors.joining()));
-            }
-        }
-    }
-    public void printProductReport(int id, String languageTag, String client) throws IOException {
         try {
-            readLock.lock();
-            printProductReport(findProduct(id), languageTag, client);
-        } catch (ProductManagerException e) {
-            logger.log(Level.INFO, e.getMessage());
-        } catch (IOException e) {
-            logger.log(Level.SEVERE,
-                    "Error while printing product report for " + id, e.getMessage());
-        } finally {
-            readLock.unlock();
+            return reports.submit(id, language, productFile, () -> report(entry, language))
+                    .whenComplete((file, e) -> reportTimer.record(start, id, e != null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.SEVERE, "Interrupted while printing product report for {0}", id);
+            reportTimer.record(start, id, true);
+            return CompletableFuture.failedFuture(e);
         }
     }
+    /**
+     * Renders the report of a product in memory, e.g. for a download, through the same
+     * cache as {@link #printProductReport}. The array may be shared and must not be modified.
+     * @return the report in UTF-8, or {@code null} if there is no such product
+     */
+    public byte[] getProductReport(int id, String languageTag) {
+        long start = reportTimer.start();
+        String language = formatters.containsKey(languageTag) ? languageTag : "ar-MA";
+        CatalogueEntry entry = catalogue.get().get(id);
+        byte[] report = entry == null ? null : report(entry, language);
+        reportTimer.record(start, id, report == null);
+        return report;
+    }
+    private byte[] report(CatalogueEntry entry, String language) {
+        int id = entry.product().getId();
+        return reportCache.get(id, entry.reviews().size(), language, () -> {
+            long rendering = renderTimer.start();
+            byte[] report = renderReport(entry, language).getBytes(StandardCharsets.UTF_8);
+            renderTimer.record(rendering, id, false);
+            return report;
+        });
+    }
+    /**
+     * @return the product as a line of the listing, in the language of {@code languageTag}
+     */
+    public String formatProduct(Product product, String languageTag) {
+        return changeLocale(languageTag).formatProduct(product);
+    }
+    /**
+     * Changes of the catalogue as they happen: products created, reviewed and rated.
+     * <br>
+     * Each subscriber gets the events published after it subscribed, as fast as it requests them,
+     * without ever slowing down the calls making the changes. A subscriber that falls more than
+     * {@code changes.buffer} events behind has the newest ones dropped, or with
+     * {@code changes.overflow=CONFLATE} only gets the latest of the events of each product it has
+     * not requested yet. Loading or restoring the catalogue publishes no events.
+     */
+    public Flow.Publisher<ProductEvent> getChanges() {
+        return changes;
+    }
+    /**
+     * @return hit, miss and eviction counts of the reviews read back from the data files,
+     * {@code null} when every review stays in memory
+     */
+    public CacheStatistics getReviewStoreStatistics() {
+        return reviewStore == null ? null : reviewStore.statistics();
+    }
+    /**
+     * @return hit, miss and eviction counts of the rendered report cache
+     */
+    public CacheStatistics getReportCacheStatistics() {
+        return reportCache.statistics();
+    }
     public Product findProduct(int id) throws ProductManagerException {
+        long start = findTimer.start();
+        Product product = null;
         try {
             readLock.lock();
-            return products.keySet()
-                    .stream()
-                    .filter(product -> product.getId() == id)
-                    .findFirst()
-                    .orElseThrow(() -> new ProductManagerException("product "+ id + " not found"));
+            product = product(id);
+            return product;
         }finally {
             readLock.unlock();
+            findTimer.record(start, id, product == null);
+        }
+    }
+    /*
+     * Callers hold the read lock.
+     */
+    private Product product(int id) throws ProductManagerException {
+        Product product = index.get(id);
+        if (product == null) {
+            throw new ProductManagerException("product "+ id + " not found");
         }
+        return product;
     }
     public void printProducts(Predicate<Product> filter,Comparator<Product> sorter, String languageTag) throws ProductManagerException {
         try {
-            readLock.lock();
-            ResourceFormatter formatter = changeLocale(languageTag);
-            StringBuilder txt = new StringBuilder();
-            products.keySet()
-                    .stream()
-                    .sorted(sorter)
-                    .filter(filter)
-                    .forEach(product -> {txt.append(formatter.formatProduct(product)).append("\n");});
-            System.out.println(txt);
-        }finally {
-            readLock.unlock();
+            Writer out = new OutputStreamWriter(System.out, Charset.defaultCharset());
+            printProducts(filter, sorter, 0, Integer.MAX_VALUE, languageTag, out);
+            out.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error while printing products: {0}", e.getMessage());
         }
-
     }
-    private Review parseReview(String text) {
+    /**
+     * Writes one page of the products matching a filter, one product per line.
+     * <br>
+     * Products are filtered before they are sorted, and when the page is bounded only the
+     * first {@code offset + limit} are kept while sorting. Lines are formatted in parallel
+     * in chunks and each chunk is written, in order, as soon as it is ready.
+     * @param offset number of matching products to skip
+     * @param limit maximum number of products to write
+     * @param out sink for the listing, flushed after every chunk but not closed
+     * @throws IOException if writing to {@code out} fails
+     * @throws IllegalArgumentException if {@code offset} or {@code limit} is negative
+     */
+    public void printProducts(Predicate<Product> filter, Comparator<Product> sorter,
+                              int offset, int limit, String languageTag, Writer out) throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("negative offset or limit: " + offset + ", " + limit);
+        }
+        long start = listTimer.start();
+        boolean failed = true;
+        try {
+            writePage(filter, sorter, offset, limit, languageTag, out);
+            failed = false;
+        } finally {
+            listTimer.record(start, 0, failed);
+        }
+    }
+    private void writePage(Predicate<Product> filter, Comparator<Product> sorter,
+                           int offset, int limit, String languageTag, Writer out) throws IOException {
+        ResourceFormatter formatter = changeLocale(languageTag);
+        List<Product> page = page(catalogue.get()
+                .values()
+                .map(CatalogueEntry::product)
+                .filter(filter), sorter, offset, limit);
+        int chunk = 1024;
+        for (int from = 0; from < page.size(); from += chunk) {
+            List<Product> lines = page.subList(from, Math.min(page.size(), from + chunk));
+            String[] formatted = lines.parallelStream()
+                    .map(formatter::formatProduct)
+                    .toArray(String[]::new);
+            for (String line : formatted) {
+                out.write(line);
+                out.write('\n');
+            }
+            out.flush();
+        }
+    }
+    /**
+     * Finds the products matching a query through the secondary indexes,
+     * in time proportional to the number of matches rather than to the catalogue.
+     * @return the matching products, by price or best before date for those queries
+     */
+    public List<Product> findProducts(ProductQuery query) {
+        long start = queryTimer.start();
+        PersistentIntMap<CatalogueEntry> snapshot = catalogue.get();
+        IntStream ids = switch (query) {
+            case ProductQuery.RatedAtLeast rated -> indexes.ratedAtLeast(rated.rating());
+            case ProductQuery.PricedBetween priced -> indexes.pricedBetween(priced.min(), priced.max());
+            case ProductQuery.BestBefore bestBefore -> indexes.bestBefore(bestBefore.from(), bestBefore.to());
+        };
+        List<Product> found = ids.mapToObj(snapshot::get)
+                .filter(Objects::nonNull)
+                .map(CatalogueEntry::product)
+                .filter(query)
+                .toList();
+        queryTimer.record(start, 0, false);
+        return found;
+    }
+    /**
+     * Finds the products whose name or reviews contain words, through the full text index.
+     * <br>
+     * All words of the query are required, {@code OR} separates alternatives and a word
+     * ending with {@code *} matches every word starting with it, e.g. {@code "lemon tea OR coff*"}.
+     * Case and punctuation are ignored.
+     * @param limit maximum number of products returned, positive
+     * @return the best rated matching products first
+     * @throws IllegalArgumentException if {@code limit} is not positive
+     */
+    public List<Product> searchProducts(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        long start = searchTimer.start();
+        PersistentIntMap<CatalogueEntry> snapshot = catalogue.get();
+        /*
+         * Matches come by increasing id, so the first ones of each rating are the ones returned,
+         * and once there are enough five star products the rest cannot rank any higher.
+         */
+        List<List<Product>> byRating = Stream.generate(() -> new ArrayList<Product>())
+                .limit(Rating.values().length)
+                .collect(Collectors.toList());
+        List<Product> best = byRating.get(Rating.FIVE_STAR.ordinal());
+        for (int id : text.search(query)) {
+            CatalogueEntry entry = snapshot.get(id);
+            if (entry != null) {
+                List<Product> rated = byRating.get(entry.product().getRating().ordinal());
+                if (rated.size() < limit) {
+                    rated.add(entry.product());
+                }
+                if (best.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        Collections.reverse(byRating);
+        List<Product> found = byRating.stream()
+                .flatMap(List::stream)
+                .limit(limit)
+                .toList();
+        searchTimer.record(start, 0, false);
+        return found;
+    }
+    private static List<Product> page(Stream<Product> matches, Comparator<Product> sorter, int offset, int limit) {
+        long bound = (long) offset + limit;
+        List<Product> sorted;
+        if (bound >= Integer.MAX_VALUE) {
+            sorted = matches.sorted(sorter).toList();
+        } else {
+            PriorityQueue<Product> top = new PriorityQueue<>((int) Math.min(bound, 1024) + 1, sorter.reversed());
+            matches.forEach(product -> {
+                if (top.size() < bound) {
+                    top.add(product);
+                } else if (bound > 0 && sorter.compare(product, top.peek()) < 0) {
+                    top.poll();
+                    top.add(product);
+                }
+            });
+            List<Product> kept = new ArrayList<>(top);
+            kept.sort(sorter);
+            sorted = kept;
+        }
+        return offset >= sorted.size() ? List.of()
+                : sorted.subList(offset, (int) Math.min(sorted.size(), bound));
+    }
+    Review parseReview(String text) {
         Review review = null;
         try {
-            Object[] values = reviewFormat.parse(text);
-            review = new Review(Reatable.convert(Integer.parseInt((String)values[0])),
-                    (String)values[1]);
+            RecordCodec.Record values = reviewCodec.parse(text);
+            review = new Review(Reatable.convert(values.intValue(0)),
+                    values.text(1));
         } catch (ParseException | NumberFormatException e) {
-            logger.log(Level.WARNING, "error parsing review "+text+e.getMessage());
+            parseErrors.increment();
+            logger.log(Level.WARNING, "Error parsing review {0}: {1}", new Object[]{text, e.getMessage()});
         }
         return review;
     }
-    private Product parseProduct(String text) {
+    Product parseProduct(String text) {
         Product product = null;
         try {
-            Object[] values = productFormat.parse(text);
-            int id = Integer.parseInt((String)values[1]);
-            String name =  (String)values[2];
-            BigDecimal price = BigDecimal.valueOf(Double.parseDouble((String)values[3]));
-            Rating rating = Reatable.convert(Integer.parseInt((String)values[4]));
-            switch ((String)values[0]) {
+            RecordCodec.Record values = productCodec.parse(text);
+            int id = values.intValue(1);
+            String name =  values.text(2);
+            BigDecimal price = values.decimalValue(3);
+            Rating rating = Reatable.convert(values.intValue(4));
+            switch (values.text(0)) {
                 case "D":
                     product = new Drink(id,name,price,rating);
                     break;
                 case "F":
-                    LocalDate bestBefore = LocalDate.parse((String)values[5]);
+                    LocalDate bestBefore = values.dateValue(5);
                     product = new Food(id,name,price,rating,bestBefore);
             }
-        } catch (ParseException | NumberFormatException | DateTimeParseException e) {
-            logger.log(Level.WARNING, "error parsing product "+text+e.getMessage());
+        } catch (ParseException | NumberFormatException | DateTimeException e) {
+            parseErrors.increment();
+            logger.log(Level.WARNING, "Error parsing product {0}: {1}", new Object[]{text, e.getMessage()});
         }
         return product;
     }
+    /**
+     * Sets the clock that decides which discounts apply, the system clock by default.
+     * A fixed or offset clock makes discounts deterministic, e.g. in load tests.
+     * The clock is shared with {@link Product#getDiscount()}, so the discount of each product
+     * agrees with the totals of {@link #getDiscounts}.
+     */
+    public void setClock(Clock clock) {
+        pricing.setClock(clock);
+    }
     public Map<String, String> getDiscounts(String languageTag) {
+        ResourceFormatter formatter = changeLocale(languageTag);
+        Map<String, String> result = new LinkedHashMap<>();
+        long start = discountsTimer.start();
+        discounts.totals(pricing.window()).forEach((rating, cents) ->
+                result.put(rating.getStars(), formatter.formatMoney(DiscountTotals.amount(cents))));
+        discountsTimer.record(start, 0, false);
+        return result;
+    }
+    private List<Review> loadReviews(int id){
         try {
-            readLock.lock();
-            ResourceFormatter formatter = changeLocale(languageTag);
-            return products.keySet()
-                    .stream()
-                    .collect(Collectors.groupingBy(
-                            product -> product.getRating().getStars(),
-                            Collectors.collectingAndThen(Collectors.summingDouble(
-                                            product -> product.getDiscount().doubleValue()),
-                                    discount -> formatter.moneyFormat.format(discount)
-                            )));
-        }finally {
-            readLock.unlock();
+            return readReviewsFile(id);
+        } catch (IOException | UncheckedIOException e) {
+            logger.log(Level.WARNING, "Error while loading reviews for {0}: {1}",
+                    new Object[]{id, e.getMessage()});
+            return new ArrayList<>();
         }
-
     }
-    private List<Review> loadReviews(Product product){
-        List<Review> reviews;
+    private List<Review> readReviewsFile(int id) throws IOException {
         Path file = dataFolder.resolve(
-                MessageFormat.format(config.getString("reviews.data.file"), product.getId())
+                MessageFormat.format(config.getString("reviews.data.file"), Integer.toString(id))
         );
         if(Files.notExists(file)) {
-            reviews = new ArrayList<>();
-        } else {
-            try {
-                reviews = Files.lines(file, StandardCharsets.UTF_8)
-                        .map(this::parseReview)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
+            return new ArrayList<>();
+        }
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.map(this::parseReview)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+    }
 
-                if (!reviews.isEmpty()) {
-                    product = product.applyRating(Reatable.convert(
-                            (int) Math.round(
-                                    reviews.stream()
-                                            .mapToInt(r -> r.rating().ordinal())
-                                            .average()
-                                            .orElse(0)
-                            )
-                    ));
-                }
-            } catch (IOException e) {
-                logger.log(Level.WARNING,"Error while loading reviews for " + product.getId(), e.getMessage());
-                reviews = new ArrayList<>();
-            }
+    /*
+     * Reads the stored reviews of a product back for the review store. Unlike loading,
+     * a failure is thrown rather than read as no reviews, since the product counts them already.
+     */
+    private List<Review> readReviews(int id){
+        try {
+            return Files.notExists(catalogueFile) ? readReviewsFile(id)
+                    : CatalogueFile.readReviews(catalogueFile, id);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error while loading reviews for {0}: {1}", new Object[]{id, e.getMessage()});
+            throw new UncheckedIOException(e);
         }
-        return reviews;
     }
 
     private Product loadProduct(Path file) {
         Product product = null;
-        try {
-            product = parseProduct(
-                    Files.lines(dataFolder
-                            .resolve(file),
-                            Charset.forName("UTF-8")).findFirst().orElseThrow());
+        try (BufferedReader in = Files.newBufferedReader(dataFolder.resolve(file), StandardCharsets.UTF_8)) {
+            product = parseProduct(Objects.requireNonNull(in.readLine(), "empty product file"));
         } catch (Exception e) {
-            logger.log(Level.WARNING,"Error while loading product "+file,e.getMessage());
+            logger.log(Level.WARNING, "Error while loading product {0}: {1}", new Object[]{file, e.getMessage()});
         }
         return product;
     }
 
-    private void loadAllData(){
+    /*
+     * Reads the product file and then the reviews file of one product, each exactly once.
+     */
+    private CatalogueEntry loadProductWithReviews(Path file) {
+        Product product = loadProduct(file);
+        if (product == null) {
+            return null;
+        }
+        List<Review> reviews = loadReviews(product.getId());
+        RatingSummary summary = RatingSummary.of(reviews);
+        if (summary.getCount() > 0) {
+            product = product.applyRating(summary.getRating());
+        }
+        return new CatalogueEntry(product, reviews, summary);
+    }
+
+    void loadAllData(){
+        long start = System.nanoTime();
+        TextIndex loadedText = new TextIndex();
+        UnaryOperator<CatalogueEntry> resident = reviewStore == null ? UnaryOperator.identity() : entry -> {
+            loadedText.add(entry);
+            return new CatalogueEntry(entry.product(), List.of(), entry.summary());
+        };
+        List<CatalogueEntry> loaded = Files.exists(catalogueFile) ? loadCatalogue(resident) : loadDataFiles(resident);
+        if (loaded == null) {
+            loadTimer.record(start, 0, true);
+            return;
+        }
         try {
-            products = Files.list(dataFolder)
-                    .filter(file -> file.getFileName().toString().startsWith("product"))
-                    .map(this::loadProduct)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toMap(
-                            product -> {
-                                List<Review> reviews = loadReviews(product);
-                                if (!reviews.isEmpty()) {
-                                    product = product.applyRating(Reatable.convert(
-                                            (int) Math.round(
-                                                    reviews.stream().mapToInt(r -> r.rating().ordinal()).average().orElse(0)
-                                            )
-                                    ));
-                                }
-                                return product;
-                            },
-                            this::loadReviews
-                    ));
+            writeLock.lock();
+            install(loaded, reviewStore == null ? TextIndex.of(loaded) : loadedText);
+            replayReviewLog();
+        } finally {
+            writeLock.unlock();
+        }
+        loadTimer.record(start, 0, false);
+        logger.log(Level.INFO, "Loaded {0} products in {1} ms",
+                new Object[]{loaded.size(), (System.nanoTime() - start) / 1_000_000});
+    }
+    /*
+     * Applies the reviews logged since the data files were last compacted,
+     * a segment left by an interrupted compaction first.
+     */
+    private void replayReviewLog(){
+        int replayed = 0;
+        for (Path file : List.of(reviewLogSegment, reviewLogFile)) {
+            try {
+                for (ReviewLog.Entry entry : ReviewLog.read(file, reviewLogCodec)) {
+                    Product product = index.get(entry.id());
+                    if (product == null) {
+                        logger.log(Level.WARNING, "Logged review of unknown product {0}", entry.id());
+                    } else {
+                        reviewProduct(product, entry.rating(), entry.comment());
+                        replayed++;
+                        reviewsReplayed.increment();
+                    }
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error while replaying {0}: {1}", new Object[]{file, e.getMessage()});
+            }
+        }
+        if (replayed > 0) {
+            logger.log(Level.INFO, "Replayed {0} logged reviews", replayed);
+        }
+    }
+    private void openReviewLog(){
+        try {
+            reviewLog = new ReviewLog(reviewLogFile, reviewLogCodec,
+                    Long.parseLong(config.getString("review.log.sync.millis")));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error while opening review log, reviews will not be persisted: {0}", e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reviewLog.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error while closing review log: {0}", e.getMessage());
+            }
+        }));
+        long minutes = Long.parseLong(config.getString("review.log.compact.minutes"));
+        if (minutes > 0) {
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().factory())
+                    .scheduleWithFixedDelay(this::compactReviewLog, minutes, minutes, TimeUnit.MINUTES);
+        }
+    }
+    /**
+     * Folds the logged reviews back into the data files and truncates the log.
+     * <br>
+     * New files are staged next to the ones they replace, then a marker file commits
+     * the compaction: if the process stops before the marker exists the staged files are
+     * discarded and the log replayed, after it the staged files are moved into place.
+     */
+    private synchronized void compactReviewLog(){
+        try {
+            if (Files.exists(reviewLogCompacted)) {
+                // a previous compaction was committed but its files could not all be moved into place
+                finishCompaction();
+            }
+            if (Files.notExists(reviewLogSegment)) {
+                reviewLog.rotate(reviewLogSegment);
+            }
+            Map<Integer, List<Review>> logged = ReviewLog.read(reviewLogSegment, reviewLogCodec)
+                    .stream()
+                    .collect(Collectors.groupingBy(ReviewLog.Entry::id, LinkedHashMap::new,
+                            Collectors.mapping(entry -> new Review(entry.rating(), entry.comment()),
+                                    Collectors.toList())));
+            if (Files.exists(catalogueFile)) {
+                Map<Product, List<Review>> merged = new HashMap<>();
+                CatalogueFile file = CatalogueFile.read(catalogueFile);
+                for (int i = 0; i < file.size(); i++) {
+                    Map.Entry<Product, List<Review>> entry = file.entryAt(i);
+                    List<Review> added = logged.get(entry.getKey().getId());
+                    if (added == null) {
+                        merged.put(entry.getKey(), entry.getValue());
+                        continue;
+                    }
+                    List<Review> reviews = new ArrayList<>(entry.getValue());
+                    reviews.addAll(added);
+                    merged.put(entry.getKey().applyRating(RatingSummary.of(reviews).getRating()), reviews);
+                }
+                CatalogueFile.write(staged(catalogueFile), merged);
+            } else {
+                for (Map.Entry<Integer, List<Review>> entry : logged.entrySet()) {
+                    Path target = dataFolder.resolve(MessageFormat.format(
+                            config.getString("reviews.data.file"), Integer.toString(entry.getKey())));
+                    Path stage = staged(target);
+                    if (Files.exists(target)) {
+                        Files.copy(target, stage, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    try (BufferedWriter out = Files.newBufferedWriter(stage, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                        for (Review review : entry.getValue()) {
+                            out.write(reviewCodec.format(review.rating().ordinal(), review.comment()));
+                            out.newLine();
+                        }
+                    }
+                }
+            }
+            Files.createFile(reviewLogCompacted);
+            finishCompaction();
+            logger.log(Level.INFO, "Compacted logged reviews of {0} products", logged.size());
         } catch (IOException e) {
-            logger.log(Level.WARNING,"Error while loading data",e.getMessage());
+            logger.log(Level.WARNING, "Error while compacting review log: {0}", e.getMessage());
         }
     }
-    private void dumpData(){
+    private Path staged(Path target){
+        return target.resolveSibling(target.getFileName() + ".compact");
+    }
+    private void finishCompaction() throws IOException {
+        try (Stream<Path> listing = Files.list(dataFolder)) {
+            for (Path stage : listing.filter(file -> file.getFileName().toString().endsWith(".compact")).toList()) {
+                String name = stage.getFileName().toString();
+                Files.move(stage, stage.resolveSibling(name.substring(0, name.length() - ".compact".length())),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        Files.deleteIfExists(reviewLogSegment);
+        Files.deleteIfExists(reviewLogCompacted);
+    }
+    private void recoverCompaction(){
+        try {
+            if (Files.exists(reviewLogCompacted)) {
+                finishCompaction();
+            } else if (Files.isDirectory(dataFolder)) {
+                try (Stream<Path> listing = Files.list(dataFolder)) {
+                    for (Path stage : listing.filter(file -> file.getFileName().toString().endsWith(".compact")).toList()) {
+                        Files.delete(stage);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error while recovering review log compaction: {0}", e.getMessage());
+        }
+    }
+    private List<CatalogueEntry> loadDataFiles(UnaryOperator<CatalogueEntry> resident){
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dataFolder)) {
+            files = listing.filter(file -> file.getFileName().toString().startsWith("product"))
+                    .toList();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error while loading data: {0}", e.getMessage());
+            return null;
+        }
+        return loadInParallel(files.size(), () -> files.parallelStream()
+                .map(this::loadProductWithReviews), resident);
+    }
+    private List<CatalogueEntry> loadCatalogue(UnaryOperator<CatalogueEntry> resident){
+        CatalogueFile file;
+        try {
+            file = CatalogueFile.read(catalogueFile);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error while loading catalogue {0}: {1}",
+                    new Object[]{catalogueFile, e.getMessage()});
+            return null;
+        }
+        return loadInParallel(file.size(), () -> IntStream.range(0, file.size())
+                .parallel()
+                .mapToObj(file::entryAt)
+                .map(entry -> {
+                    Product product = entry.getKey();
+                    RatingSummary summary = RatingSummary.of(entry.getValue());
+                    if (summary.getCount() > 0) {
+                        product = product.applyRating(summary.getRating());
+                    }
+                    return new CatalogueEntry(product, entry.getValue(), summary);
+                }), resident);
+    }
+    /*
+     * Runs a parallel loading stream on its own pool, so that blocking file reads
+     * can use more threads than there are cores, and logs progress every 10%.
+     * Each loaded entry is passed through resident, which keeps what stays in memory.
+     */
+    private List<CatalogueEntry> loadInParallel(int total, Supplier<Stream<CatalogueEntry>> source,
+                                                UnaryOperator<CatalogueEntry> resident){
+        int step = Math.max(1, total / 10);
+        AtomicInteger progress = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(config.getString("load.parallelism")));
+        try {
+            return pool.submit(() -> source.get()
+                    .peek(result -> {
+                        int done = progress.incrementAndGet();
+                        if (done % step == 0) {
+                            logger.log(Level.INFO, "Loaded {0} of {1} products",
+                                    new Object[]{done, total});
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .map(resident)
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while loading data: {0}", e.getMessage());
+            return null;
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Error while loading data: {0}", e.getCause().getMessage());
+            return null;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    /*
+     * Replaces the whole catalogue, the caller holds the write lock.
+     * An entry whose summary counts more reviews than it lists has the others in the data files.
+     */
+    private void install(List<CatalogueEntry> entries, TextIndex installedText){
+        Map<Product, ReviewHistory> installedProducts = new ConcurrentHashMap<>(entries.size() * 2);
+        IntHashMap<Product> installedIndex = new IntHashMap<>(entries.size());
+        IntHashMap<RatingSummary> installedSummaries = new IntHashMap<>(entries.size());
+        PersistentIntMap<CatalogueEntry> installedCatalogue = PersistentIntMap.empty();
+        ProductIndexes installedIndexes = new ProductIndexes();
+        DiscountTotals installedDiscounts = new DiscountTotals();
+        for (CatalogueEntry entry : entries) {
+            ReviewHistory reviews = new ReviewHistory(entry.reviews());
+            int id = entry.product().getId();
+            installedProducts.put(entry.product(), reviews);
+            installedIndex.put(id, entry.product());
+            installedSummaries.put(id, entry.summary());
+            installedIndexes.add(entry.product());
+            installedDiscounts.add(entry.product());
+            installedCatalogue = installedCatalogue.put(id,
+                    new CatalogueEntry(entry.product(), published(id, reviews, entry.summary()), entry.summary()));
+        }
+        if (reviewStore != null) {
+            reviewStore.clear();
+        }
+        products = installedProducts;
+        index = installedIndex;
+        summaries = installedSummaries;
+        indexes = installedIndexes;
+        discounts = installedDiscounts;
+        text = installedText;
+        catalogue.set(installedCatalogue);
+        reportCache.clear();
+    }
+    /**
+     * Writes the whole catalogue to the {@code catalogue.file} in the data folder.
+     * Once it exists it is loaded instead of the per product csv files,
+     * so calling this after loading the csv files converts the data folder.
+     * <br>
+     * The file holds every review logged so far, so the review log is rotated at the moment
+     * the catalogue is read and the file committed like a {@link #compactReviewLog compaction}:
+     * until it is, the previous data files and the log still hold every review.
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void exportCatalogue() throws IOException {
+        if (reviewLog != null && Files.exists(reviewLogSegment)) {
+            // left by an interrupted compaction, it has to be folded in before the log is rotated again
+            compactReviewLog();
+            if (Files.exists(reviewLogSegment)) {
+                throw new IOException("could not compact review log segment " + reviewLogSegment);
+            }
+        }
+        PersistentIntMap<CatalogueEntry> snapshot;
+        try {
+            writeLock.lock();
+            snapshot = catalogue.get();
+            if (reviewLog != null) {
+                reviewLog.awaitWritten();
+                reviewLog.rotate(reviewLogSegment);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        Map<Product, List<Review>> exported = snapshot.values()
+                .collect(Collectors.toMap(CatalogueEntry::product, CatalogueEntry::reviews));
+        if (reviewLog == null) {
+            CatalogueFile.write(catalogueFile, exported);
+            return;
+        }
+        CatalogueFile.write(staged(catalogueFile), exported);
+        Files.createFile(reviewLogCompacted);
+        finishCompaction();
+    }
+    /**
+     * Writes a snapshot of the catalogue, including reviews, to a new file in the temp folder.
+     * The snapshot is the published point in time view, so writers are never blocked.
+     */
+    void dumpData(){
+        long start = System.nanoTime();
         try {
             if(Files.notExists(tempFolder)) {
                 Files.createDirectories(tempFolder);
@@ -357,29 +1128,61 @@ public class ProductManager {
                             .withZone(ZoneId.systemDefault())
                             .format(Instant.now()))
             );
-            try(ObjectOutputStream out = new ObjectOutputStream(
-                    Files.newOutputStream(tempFile,StandardOpenOption.CREATE))){
-                out.writeObject(products);
-                products = new HashMap<>();
-            }
+            int count = SnapshotFile.write(tempFile, catalogue.get().values().iterator());
+            dumpTimer.record(start, 0, false);
+            logger.log(Level.INFO, "Dumped {0} products in {1} ms",
+                    new Object[]{count, (System.nanoTime() - start) / 1_000_000});
         } catch (IOException e){
-            logger.log(Level.WARNING,"Error while dumping data",e.getMessage());
+            dumpTimer.record(start, 0, true);
+            logger.log(Level.WARNING, "Error while dumping data: {0}", e.getMessage());
         }
     }
-    @SuppressWarnings("unchecked")
-    private void restoreData(){
-        try{
-            Path tempFile = Files.list(tempFolder)
+    /**
+     * Replaces the catalogue with the first snapshot found in the temp folder and deletes it.
+     * Blocks are checked and decoded in parallel.
+     * <br>
+     * Nothing is replaced unless the whole snapshot decodes. A snapshot restored but left
+     * in place because it could not be deleted is logged as such, it would be restored again.
+     */
+    void restoreData(){
+        long start = System.nanoTime();
+        Path tempFile;
+        List<CatalogueEntry> restored;
+        TextIndex restoredText;
+        try (Stream<Path> listing = Files.list(tempFolder)) {
+            tempFile = listing
                     .filter(path ->
                             path.getFileName().toString().endsWith("tmp"))
                     .findFirst().orElseThrow();
-            try(ObjectInputStream in = new ObjectInputStream(
-                    Files.newInputStream(tempFile,StandardOpenOption.DELETE_ON_CLOSE)
-            )){
-                products = (HashMap) in.readObject();
-            }
+            restored = SnapshotFile.blocks(tempFile)
+                    .parallelStream()
+                    .flatMap(block -> {
+                        try {
+                            return SnapshotFile.decode(block).stream();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toList();
+            restoredText = TextIndex.of(restored);
         }catch (Exception e){
-            logger.log(Level.WARNING,"Error while restoring data",e.getMessage());
+            restoreTimer.record(start, 0, true);
+            logger.log(Level.WARNING, "Error while restoring data, the catalogue is unchanged: {0}", e.getMessage());
+            return;
+        }
+        try {
+            writeLock.lock();
+            install(restored, restoredText);
+        } finally {
+            writeLock.unlock();
+        }
+        restoreTimer.record(start, 0, false);
+        logger.log(Level.INFO, "Restored {0} products from {1}", new Object[]{restored.size(), tempFile});
+        try {
+            Files.delete(tempFile);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Restored data but could not delete snapshot {0}: {1}",
+                    new Object[]{tempFile, e.getMessage()});
         }
     }
 }
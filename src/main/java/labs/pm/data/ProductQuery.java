@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * {@code ProductQuery} is a product filter that {@link ProductManager#findProducts(ProductQuery)}
+ * answers from an index instead of scanning the whole catalogue.
+ * It is also a plain {@link Predicate}, e.g. for {@code printProducts}.
+ * @version 4.0
+ * @author saade
+ **/
+public sealed interface ProductQuery extends Predicate<Product> {
+    /**
+     * Products rated {@code rating} or better.
+     */
+    record RatedAtLeast(Rating rating) implements ProductQuery {
+        public RatedAtLeast {
+            Objects.requireNonNull(rating);
+        }
+
+        @Override
+        public boolean test(Product product) {
+            return product.getRating().compareTo(rating) >= 0;
+        }
+    }
+
+    /**
+     * Products priced from {@code min} to {@code max} inclusive, cheapest first.
+     */
+    record PricedBetween(BigDecimal min, BigDecimal max) implements ProductQuery {
+        public PricedBetween {
+            Objects.requireNonNull(min);
+            Objects.requireNonNull(max);
+        }
+
+        @Override
+        public boolean test(Product product) {
+            return product.getPrice().compareTo(min) >= 0 && product.getPrice().compareTo(max) <= 0;
+        }
+    }
+
+    /**
+     * Food best before a date from {@code from} to {@code to} inclusive, soonest first.
+     */
+    record BestBefore(LocalDate from, LocalDate to) implements ProductQuery {
+        public BestBefore {
+            Objects.requireNonNull(from);
+            Objects.requireNonNull(to);
+        }
+
+        @Override
+        public boolean test(Product product) {
+            return product instanceof Food food
+                    && !food.getBestBefore().isBefore(from) && !food.getBestBefore().isAfter(to);
+        }
+    }
+
+    static ProductQuery ratedAtLeast(Rating rating) {
+        return new RatedAtLeast(rating);
+    }
+
+    static ProductQuery pricedBetween(BigDecimal min, BigDecimal max) {
+        return new PricedBetween(min, max);
+    }
+
+    static ProductQuery bestBefore(LocalDate date) {
+        return new BestBefore(date, date);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * {@code RatingSummary} is the running aggregate of the reviews of a product:
+ * the number of reviews, the sum of their stars and a histogram per {@link Rating}.
+ * <br>
+ * Instances are immutable, {@link #addAll addAll} returns a new summary in time proportional
+ * to the reviews added, not to the reviews already counted.
+ * @version 4.0
+ * @author saade
+ **/
+public final class RatingSummary {
+    public static final RatingSummary EMPTY = new RatingSummary(0, 0, new int[Rating.values().length]);
+
+    private final int count;
+    private final long sum;
+    private final int[] histogram;
+
+    private RatingSummary(int count, long sum, int[] histogram) {
+        this.count = count;
+        this.sum = sum;
+        this.histogram = histogram;
+    }
+
+    public static RatingSummary of(Collection<Review> reviews) {
+        int[] histogram = new int[Rating.values().length];
+        long sum = 0;
+        for (Review review : reviews) {
+            histogram[review.rating().ordinal()]++;
+            sum += review.rating().ordinal();
+        }
+        return new RatingSummary(reviews.size(), sum, histogram);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the average of the reviews rounded to the nearest {@link Rating},
+     * or {@link Rating#NOT_RATED} when there are no reviews
+     */
+    public Rating getRating() {
+        return count == 0 ? Rating.NOT_RATED
+                : Reatable.convert((int) Math.round((double) sum / count));
+    }
+
+    /**
+     * @return this summary with all the ratings of {@code reviews} added
+     */
+    public RatingSummary addAll(Collection<Review> reviews) {
+        int[] next = Arrays.copyOf(histogram, histogram.length);
+        long added = 0;
+        for (Review review : reviews) {
+            next[review.rating().ordinal()]++;
+            added += review.rating().ordinal();
+        }
+        return new RatingSummary(count + reviews.size(), sum + added, next);
+    }
+
+    @Override
+    public String toString() {
+        return count + " " + sum + " " + Arrays.toString(histogram);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code RecordCodec} reads and writes the delimited records of the data files
+ * without going through {@link java.text.MessageFormat}.
+ * <br>
+ * The layout comes from the same {@code config.properties} patterns,
+ * e.g. {@code {0},{1},{2}}: plain placeholders numbered from zero in order,
+ * separated by literal text. A field may be enclosed in double quotes,
+ * with {@code ""} standing for a quote, to contain the separator.
+ * The last field takes the rest of the line, so unquoted review comments may contain commas.
+ * @version 4.0
+ * @author saade
+ **/
+final class RecordCodec {
+    private final String[] literals;
+
+    /**
+     * @param pattern record layout, e.g. {@code {0},{1}}
+     * @throws IllegalArgumentException if the pattern uses anything but plain ordered placeholders
+     */
+    RecordCodec(String pattern) {
+        List<String> parts = new ArrayList<>();
+        int pos = 0;
+        for (int field = 0; ; field++) {
+            String placeholder = "{" + field + "}";
+            int next = pattern.indexOf(placeholder, pos);
+            if (next < 0) {
+                parts.add(pattern.substring(pos));
+                break;
+            }
+            parts.add(pattern.substring(pos, next));
+            pos = next + placeholder.length();
+        }
+        if (parts.size() < 2) {
+            throw new IllegalArgumentException("no fields in record pattern " + pattern);
+        }
+        for (int i = 1; i < parts.size() - 1; i++) {
+            if (parts.get(i).isEmpty()) {
+                throw new IllegalArgumentException("fields must be separated in record pattern " + pattern);
+            }
+        }
+        for (String literal : parts) {
+            if (literal.indexOf('{') >= 0 || literal.indexOf('\'') >= 0) {
+                throw new IllegalArgumentException("unsupported record pattern " + pattern);
+            }
+        }
+        literals = parts.toArray(String[]::new);
+    }
+
+    int fields() {
+        return literals.length - 1;
+    }
+
+    Record parse(String line) throws ParseException {
+        int fields = fields();
+        int[] starts = new int[fields];
+        int[] ends = new int[fields];
+        long quoted = 0;
+        if (!line.startsWith(literals[0])) {
+            throw new ParseException("record does not start with \"" + literals[0] + "\": " + line, 0);
+        }
+        int pos = literals[0].length();
+        int limit = line.length() - literals[fields].length();
+        if (limit < pos || !line.startsWith(literals[fields], limit)) {
+            throw new ParseException("record does not end with \"" + literals[fields] + "\": " + line, limit);
+        }
+        for (int i = 0; i < fields; i++) {
+            boolean last = i == fields - 1;
+            String separator = literals[i + 1];
+            if (pos < limit && line.charAt(pos) == '"') {
+                int close = closingQuote(line, pos + 1, limit);
+                if (close >= 0 && (last ? close + 1 == limit : line.startsWith(separator, close + 1))) {
+                    starts[i] = pos + 1;
+                    ends[i] = close;
+                    quoted |= 1L << i;
+                    pos = close + 1 + (last ? 0 : separator.length());
+                    continue;
+                }
+            }
+            starts[i] = pos;
+            if (last) {
+                ends[i] = limit;
+            } else {
+                int end = line.indexOf(separator, pos);
+                if (end < 0 || end > limit) {
+                    throw new ParseException("expected " + fields + " fields: " + line, pos);
+                }
+                ends[i] = end;
+                pos = end + separator.length();
+            }
+        }
+        return new Record(line, starts, ends, quoted);
+    }
+
+    private static int closingQuote(String line, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (line.charAt(i) == '"') {
+                if (i + 1 < limit && line.charAt(i + 1) == '"') {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    String format(Object... values) {
+        StringBuilder txt = new StringBuilder(literals[0]);
+        for (int i = 0; i < fields(); i++) {
+            String value = (i < values.length && values[i] != null) ? values[i].toString() : "";
+            boolean last = i == fields() - 1;
+            if ((!last && value.contains(literals[i + 1])) || value.startsWith("\"")) {
+                txt.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                txt.append(value);
+            }
+            txt.append(literals[i + 1]);
+        }
+        return txt.toString();
+    }
+
+    /**
+     * Field boundaries of one parsed line, values are only materialized on request.
+     */
+    static final class Record {
+        private final String line;
+        private final int[] starts;
+        private final int[] ends;
+        private final long quoted;
+
+        private Record(String line, int[] starts, int[] ends, long quoted) {
+            this.line = line;
+            this.starts = starts;
+            this.ends = ends;
+            this.quoted = quoted;
+        }
+
+        boolean isEmpty(int field) {
+            return starts[field] == ends[field];
+        }
+
+        String text(int field) {
+            String value = line.substring(starts[field], ends[field]);
+            return (quoted & (1L << field)) != 0 ? value.replace("\"\"", "\"") : value;
+        }
+
+        char firstChar(int field) {
+            return isEmpty(field) ? 0 : line.charAt(starts[field]);
+        }
+
+        int intValue(int field) {
+            int pos = starts[field];
+            int end = ends[field];
+            boolean negative = pos < end && line.charAt(pos) == '-';
+            if (negative || (pos < end && line.charAt(pos) == '+')) {
+                pos++;
+            }
+            if (pos == end || end - pos > 9) {
+                return Integer.parseInt(text(field));
+            }
+            int value = 0;
+            for (; pos < end; pos++) {
+                int digit = line.charAt(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("For input string: \"" + text(field) + "\"");
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Reads a plain decimal such as {@code 1.99} straight into an unscaled long,
+         * falling back to {@link BigDecimal#BigDecimal(String)} for long or exponent forms.
+         */
+        BigDecimal decimalValue(int field) {
+            int pos = starts[field];
+            int end = ends[field];
+            boolean negative = pos < end && line.charAt(pos) == '-';
+            if (negative || (pos < end && line.charAt(pos) == '+')) {
+                pos++;
+            }
+            long unscaled = 0;
+            int digits = 0;
+            int scale = -1;
+            for (; pos < end; pos++) {
+                char c = line.charAt(pos);
+                if (c == '.' && scale < 0) {
+                    scale = 0;
+                } else if (c >= '0' && c <= '9' && digits < 18) {
+                    unscaled = unscaled * 10 + (c - '0');
+                    digits++;
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else {
+                    return new BigDecimal(text(field));
+                }
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("For input string: \"" + text(field) + "\"");
+            }
+            return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+        }
+
+        LocalDate dateValue(int field) {
+            int pos = starts[field];
+            if (ends[field] - pos == 10 && line.charAt(pos + 4) == '-' && line.charAt(pos + 7) == '-') {
+                try {
+                    return LocalDate.of(digits(pos, 4), digits(pos + 5, 2), digits(pos + 8, 2));
+                } catch (NumberFormatException e) {
+                    // not plain digits, let LocalDate.parse report it
+                }
+            }
+            return LocalDate.parse(text(field));
+        }
+
+        private int digits(int pos, int count) {
+            int value = 0;
+            for (int i = pos; i < pos + count; i++) {
+                int digit = line.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException();
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+    }
+}
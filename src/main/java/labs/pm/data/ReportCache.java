@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@code ReportCache} keeps rendered report bodies, least recently used first out,
+ * within a budget of bytes.
+ * <br>
+ * An entry is stored per product and language together with the version of the product
+ * it was rendered from (its number of reviews), so a report is only reused while the
+ * product has not been reviewed again.
+ * @version 4.0
+ * @author saade
+ **/
+final class ReportCache {
+    private record Key(int id, String languageTag) {}
+
+    private record Rendered(long version, byte[] body) {}
+
+    private final long capacity;
+    private final Map<Key, Rendered> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long size;
+    /*
+     * incremented by every clear, so a report rendered from the catalogue before is not cached after
+     */
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity budget in bytes of report bodies, {@code 0} disables caching
+     */
+    ReportCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the cached body of this version of the report, rendering and caching it if needed
+     */
+    byte[] get(int id, long version, String languageTag, Supplier<byte[]> renderer) {
+        Key key = new Key(id, languageTag);
+        long rendering;
+        synchronized (this) {
+            rendering = generation;
+            Rendered rendered = entries.get(key);
+            if (rendered != null && rendered.version() == version) {
+                hits.increment();
+                return rendered.body();
+            }
+        }
+        misses.increment();
+        byte[] body = renderer.get();
+        if (body.length <= capacity) {
+            synchronized (this) {
+                Rendered previous = entries.get(key);
+                if (rendering == generation && (previous == null || previous.version() <= version)) {
+                    put(key, new Rendered(version, body));
+                }
+            }
+        }
+        return body;
+    }
+
+    private void put(Key key, Rendered rendered) {
+        Rendered previous = entries.put(key, rendered);
+        size += rendered.body().length - (previous == null ? 0 : previous.body().length);
+        Iterator<Rendered> eldest = entries.values().iterator();
+        while (size > capacity && eldest.hasNext()) {
+            size -= eldest.next().body().length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Drops the reports of a product in every language.
+     */
+    synchronized void invalidate(int id, Iterable<String> languageTags) {
+        for (String languageTag : languageTags) {
+            Rendered removed = entries.remove(new Key(id, languageTag));
+            if (removed != null) {
+                size -= removed.body().length;
+            }
+        }
+    }
+
+    /**
+     * Drops every report, e.g. when the catalogue is loaded or restored again.
+     */
+    synchronized void clear() {
+        entries.clear();
+        size = 0;
+        generation++;
+    }
+
+    synchronized CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), entries.size(), size, capacity);
+    }
+}
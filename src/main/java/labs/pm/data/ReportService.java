@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * {@code ReportService} renders and writes product reports in the background.
+ * <br>
+ * Requests wait in a bounded queue, served by a fixed number of virtual threads.
+ * When the queue is full, {@link #submit submit} blocks the caller until a writer catches up.
+ * A request for a product and language that is still queued joins the queued one:
+ * the report is rendered once, from the most recent request's data, and written
+ * to the file of every client that asked for it.
+ * @version 4.0
+ * @author saade
+ **/
+final class ReportService implements Closeable {
+    private static final Logger logger = Logger.getLogger(ReportService.class.getName());
+
+    private record Key(int id, String languageTag) {}
+
+    private record Target(Path file, CompletableFuture<Path> written) {}
+
+    private static final class Job {
+        private final Key key;
+        private Supplier<byte[]> renderer;
+        private final List<Target> targets = new ArrayList<>();
+
+        private Job(Key key, Supplier<byte[]> renderer) {
+            this.key = key;
+            this.renderer = renderer;
+        }
+    }
+
+    private static final Job STOP = new Job(null, null);
+
+    private final BlockingQueue<Job> queue;
+    private final Map<Key, Job> pending = new HashMap<>();
+    private final List<Thread> writers;
+    private boolean closed;
+    /*
+     * callers between their check of closed and the end of their put, close waits for them
+     */
+    private int submitting;
+
+    /**
+     * @param capacity number of distinct reports that may wait to be written
+     * @param writers number of virtual threads writing reports
+     */
+    ReportService(int capacity, int writers) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        this.writers = Stream.generate(() -> Thread.ofVirtual().name("report-writer").start(this::write))
+                .limit(writers)
+                .toList();
+    }
+
+    /**
+     * @param renderer produces the report body from data captured at the time of the request
+     * @return completed with {@code file} once the report is written
+     */
+    CompletableFuture<Path> submit(int id, String languageTag, Path file, Supplier<byte[]> renderer)
+            throws InterruptedException {
+        Key key = new Key(id, languageTag);
+        Target target = new Target(file, new CompletableFuture<>());
+        Job job;
+        synchronized (this) {
+            if (closed) {
+                throw new RejectedExecutionException("report service is closed");
+            }
+            job = pending.get(key);
+            if (job != null) {
+                job.renderer = renderer;
+                job.targets.add(target);
+                return target.written();
+            }
+            job = new Job(key, renderer);
+            job.targets.add(target);
+            pending.put(key, job);
+            submitting++;
+        }
+        try {
+            queue.put(job);
+        } catch (InterruptedException e) {
+            List<Target> targets;
+            synchronized (this) {
+                pending.remove(key, job);
+                targets = List.copyOf(job.targets);
+            }
+            targets.forEach(joined -> joined.written().completeExceptionally(e));
+            throw e;
+        } finally {
+            synchronized (this) {
+                if (--submitting == 0) {
+                    notifyAll();
+                }
+            }
+        }
+        return target.written();
+    }
+
+    private void write() {
+        while (true) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == STOP) {
+                return;
+            }
+            process(job);
+        }
+    }
+
+    private void process(Job job) {
+        Supplier<byte[]> renderer;
+        List<Target> targets;
+        synchronized (this) {
+            pending.remove(job.key);
+            renderer = job.renderer;
+            targets = List.copyOf(job.targets);
+        }
+        byte[] body;
+        try {
+            body = renderer.get();
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, e, () -> "Error while rendering report for " + job.key.id());
+            targets.forEach(target -> target.written().completeExceptionally(e));
+            return;
+        }
+        for (Target target : targets) {
+            try {
+                Files.write(target.file(), body);
+                target.written().complete(target.file());
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Error while writing report {0}: {1}", new Object[]{target.file(), e.getMessage()});
+                target.written().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Writes every queued report, including ones still being queued when closing, then stops the writers.
+     */
+    @Override
+    public void close() {
+        try {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                // the writers keep running meanwhile, so a caller blocked on a full queue gets in
+                while (submitting > 0) {
+                    wait();
+                }
+            }
+            for (int i = 0; i < writers.size(); i++) {
+                queue.put(STOP);
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            Job job;
+            while ((job = queue.poll()) != null) {
+                if (job != STOP) {
+                    process(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
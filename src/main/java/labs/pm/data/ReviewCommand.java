@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.Objects;
+
+/**
+ * {@code ReviewCommand} is one review of a batch given to {@link ProductManager#reviewProducts}.
+ * @param productId id of the reviewed product
+ * @param rating rating given by the review
+ * @param comment comment of the review
+ * @version 4.0
+ * @author saade
+ **/
+public record ReviewCommand(int productId, Rating rating, String comment) {
+    public ReviewCommand {
+        Objects.requireNonNull(rating);
+        Objects.requireNonNull(comment);
+    }
+
+    /**
+     * {@code Result} is the outcome of one command of a batch.
+     * @param command the command
+     * @param product the product rated with every review of the batch, {@code null} if the command failed
+     * @param error why the command failed, {@code null} if it succeeded
+     */
+    public record Result(ReviewCommand command, Product product, String error) {
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * {@code ReviewHistory} is the append only list of the reviews of one product.
+ * <br>
+ * Reviews are never changed once added and growing copies the array,
+ * so the first {@code n} slots of an array stay the same for as long as anyone uses it.
+ * That lets {@link #view() view} hand out an immutable list of the reviews so far
+ * in constant time, without copying, while later reviews keep being appended.
+ * <br>
+ * Appending is not thread safe, callers are expected to guard it.
+ * @version 4.0
+ * @author saade
+ **/
+final class ReviewHistory extends AbstractList<Review> implements RandomAccess {
+    private Review[] reviews;
+    private int size;
+
+    ReviewHistory() {
+        reviews = new Review[4];
+    }
+
+    ReviewHistory(Collection<Review> initial) {
+        reviews = initial.toArray(new Review[Math.max(4, initial.size())]);
+        size = initial.size();
+    }
+
+    @Override
+    public boolean add(Review review) {
+        if (size == reviews.length) {
+            reviews = Arrays.copyOf(reviews, size + (size >> 1));
+        }
+        reviews[size++] = Objects.requireNonNull(review);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Review> added) {
+        if (size + added.size() > reviews.length) {
+            reviews = Arrays.copyOf(reviews, Math.max(size + added.size(), size + (size >> 1)));
+        }
+        for (Review review : added) {
+            reviews[size++] = Objects.requireNonNull(review);
+        }
+        modCount++;
+        return !added.isEmpty();
+    }
+
+    @Override
+    public Review get(int index) {
+        return reviews[Objects.checkIndex(index, size)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return an immutable list of the reviews added so far
+     */
+    List<Review> view() {
+        return new View(reviews, size);
+    }
+
+    private static final class View extends AbstractList<Review> implements RandomAccess {
+        private final Review[] reviews;
+        private final int size;
+
+        private View(Review[] reviews, int size) {
+            this.reviews = reviews;
+            this.size = size;
+        }
+
+        @Override
+        public Review get(int index) {
+            return reviews[Objects.checkIndex(index, size)];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * {@code ReviewLog} is the append only write ahead log of reviews.
+ * <br>
+ * {@link #append append} only queues the entry, a single writer thread writes
+ * everything queued so far and then forces it to disk, so concurrent reviews share
+ * one fsync (group commit). An entry waits at most the sync interval plus one write
+ * before it is durable, which bounds what an abrupt stop can lose.
+ * <br>
+ * {@link #rotate rotate} closes the current file as a segment for compaction
+ * and continues in a new one.
+ * @version 4.0
+ * @author saade
+ **/
+final class ReviewLog implements Closeable {
+    private static final Logger logger = Logger.getLogger(ReviewLog.class.getName());
+    private static final int CAPACITY = 1 << 16;
+    private static final String STOP = "";
+
+    record Entry(int id, Rating rating, String comment) {}
+
+    private final Path file;
+    private final RecordCodec codec;
+    private final long syncMillis;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(CAPACITY);
+    private final Thread writer;
+    private FileChannel channel;
+    /*
+     * queue items put so far, and handled by the writer so far, guarded by progress
+     */
+    private final AtomicLong queued = new AtomicLong();
+    private final Object progress = new Object();
+    private long written;
+
+    /**
+     * @param file log file, created if missing and appended to otherwise
+     * @param codec layout of a log entry: product id, rating and comment
+     * @param syncMillis how long the writer collects entries before forcing them to disk
+     */
+    ReviewLog(Path file, RecordCodec codec, long syncMillis) throws IOException {
+        this.file = file;
+        this.codec = codec;
+        this.syncMillis = syncMillis;
+        channel = open(file);
+        writer = Thread.ofPlatform().daemon().name("review-log-writer").start(this::write);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Queues an entry, blocking only if the writer has fallen a full queue behind.
+     */
+    void append(int id, Rating rating, String comment) {
+        String line = codec.format(id, rating.ordinal(), comment.replace('\n', ' ').replace('\r', ' '))
+                + System.lineSeparator();
+        try {
+            queue.put(line);
+            queued.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while logging review of {0}", id);
+        }
+    }
+
+    /**
+     * Queues entries as one, so they are written together.
+     */
+    void append(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            lines.append(codec.format(entry.id(), entry.rating().ordinal(),
+                            entry.comment().replace('\n', ' ').replace('\r', ' ')))
+                    .append(System.lineSeparator());
+        }
+        try {
+            queue.put(lines.toString());
+            queued.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while logging {0} reviews", entries.size());
+        }
+    }
+
+    private void write() {
+        List<String> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(syncMillis);
+                long wait;
+                while ((wait = deadline - System.nanoTime()) > 0) {
+                    String line = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (line == null) {
+                        break;
+                    }
+                    batch.add(line);
+                    queue.drainTo(batch);
+                }
+                queue.drainTo(batch);
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+            }
+            running = !batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+            synchronized (progress) {
+                written += batch.size();
+                progress.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    private synchronized void flush(List<String> batch) {
+        byte[] bytes = String.join("", batch).getBytes(StandardCharsets.UTF_8);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e, () -> "Error while writing " + batch.size() + " reviews to " + file);
+        }
+    }
+
+    /**
+     * Blocks until every entry queued so far has been written and forced to disk,
+     * e.g. before a {@link #rotate rotation} that must not leave any of them to the new file.
+     */
+    void awaitWritten() throws InterruptedIOException {
+        long target = queued.get();
+        synchronized (progress) {
+            while (written < target) {
+                try {
+                    progress.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while writing the review log");
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves everything written so far to {@code segment}, entries still queued go to a new log file.
+     */
+    synchronized void rotate(Path segment) throws IOException {
+        channel.force(false);
+        channel.close();
+        Files.move(file, segment, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(file);
+    }
+
+    /**
+     * Reads the entries of a log file or segment, skipping the ones that cannot be parsed.
+     */
+    static List<Entry> read(Path file, RecordCodec codec) throws IOException {
+        if (Files.notExists(file)) {
+            return List.of();
+        }
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.map(line -> {
+                        try {
+                            RecordCodec.Record values = codec.parse(line);
+                            return new Entry(values.intValue(0), Reatable.convert(values.intValue(1)), values.text(2));
+                        } catch (ParseException | NumberFormatException e) {
+                            logger.log(Level.WARNING, "Skipping review log entry {0}", line);
+                            return null;
+                        }
+                    })
+                    .filter(entry -> entry != null)
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes out every queued entry and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+        }
+    }
+}
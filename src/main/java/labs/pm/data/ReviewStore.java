@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * {@code ReviewStore} keeps the reviews read from the data files of the most recently used
+ * products, least recently used first out, within a budget of bytes, and reads the others
+ * again when they are needed.
+ * <br>
+ * The reviews of a product are published as a {@link #reviews list} that knows its size
+ * without reading anything, and reads the stored reviews only when it is iterated,
+ * e.g. to render a report. Threads that need the same product while it is being read
+ * wait for that one read instead of starting their own.
+ * <br>
+ * Data files only ever have reviews appended, so a list keeps the number of stored reviews
+ * it was created with and ignores any read after it. A list whose stored reviews cannot
+ * all be read throws when iterated, rather than showing fewer reviews than its size.
+ * @version 4.0
+ * @author saade
+ **/
+final class ReviewStore {
+    /*
+     * Approximate heap taken by a review besides its comment: the review, the string, its array and a list slot.
+     */
+    private static final int REVIEW_BYTES = 72;
+
+    private record Stored(List<Review> reviews, long size) {}
+
+    private final long capacity;
+    private final IntFunction<List<Review>> reader;
+    private final Map<Integer, Stored> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Integer, CompletableFuture<List<Review>>> reading = new HashMap<>();
+    private long size;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity budget in bytes of the reviews kept in memory
+     * @param reader reads the stored reviews of a product
+     */
+    ReviewStore(long capacity, IntFunction<List<Review>> reader) {
+        this.capacity = capacity;
+        this.reader = reader;
+    }
+
+    /**
+     * @param stored number of reviews of the product in the data files
+     * @param added reviews added since, kept in memory
+     * @return the reviews of a product, read from the data files when iterated
+     */
+    List<Review> reviews(int id, int stored, List<Review> added) {
+        return new Reviews(id, stored, added);
+    }
+
+    /**
+     * @return the stored reviews of a product, from memory or read once however many threads ask
+     */
+    List<Review> get(int id) {
+        CompletableFuture<List<Review>> read;
+        boolean first;
+        synchronized (this) {
+            Stored stored = entries.get(id);
+            if (stored != null) {
+                hits.increment();
+                return stored.reviews();
+            }
+            read = reading.get(id);
+            first = read == null;
+            if (first) {
+                misses.increment();
+                read = new CompletableFuture<>();
+                reading.put(id, read);
+            } else {
+                hits.increment();
+            }
+        }
+        if (!first) {
+            try {
+                return read.join();
+            } catch (CompletionException e) {
+                // the failure of the first reader, as it was thrown to it
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            List<Review> reviews = List.copyOf(reader.apply(id));
+            long bytes = reviews.stream().mapToLong(review -> REVIEW_BYTES + review.comment().length()).sum();
+            synchronized (this) {
+                reading.remove(id);
+                if (bytes <= capacity) {
+                    put(id, new Stored(reviews, bytes));
+                }
+            }
+            read.complete(reviews);
+            return reviews;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                reading.remove(id);
+            }
+            read.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void put(int id, Stored stored) {
+        Stored previous = entries.put(id, stored);
+        size += stored.size() - (previous == null ? 0 : previous.size());
+        Iterator<Stored> eldest = entries.values().iterator();
+        while (size > capacity && eldest.hasNext()) {
+            size -= eldest.next().size();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Forgets every stored review, e.g. when the data files are loaded again.
+     */
+    synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    synchronized CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), entries.size(), size, capacity);
+    }
+
+    private final class Reviews extends AbstractList<Review> {
+        private final int id;
+        private final int stored;
+        private final List<Review> added;
+
+        private Reviews(int id, int stored, List<Review> added) {
+            this.id = id;
+            this.stored = stored;
+            this.added = added;
+        }
+
+        private List<Review> stored() {
+            if (stored == 0) {
+                return List.of();
+            }
+            List<Review> reviews = ReviewStore.this.get(id);
+            if (reviews.size() < stored) {
+                throw new IllegalStateException("read " + reviews.size() + " of the "
+                        + stored + " stored reviews of product " + id);
+            }
+            return reviews.subList(0, stored);
+        }
+
+        @Override
+        public Review get(int index) {
+            Objects.checkIndex(index, size());
+            return index < stored ? stored().get(index) : added.get(index - stored);
+        }
+
+        @Override
+        public int size() {
+            return stored + added.size();
+        }
+
+        @Override
+        public Iterator<Review> iterator() {
+            return Stream.concat(stored().stream(), added.stream()).iterator();
+        }
+    }
+}
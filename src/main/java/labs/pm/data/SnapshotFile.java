@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * {@code SnapshotFile} reads and writes dumps of the catalogue.
+ * <br>
+ * Layout: a header (magic, schema version) followed by blocks of about one megabyte,
+ * each made of its payload length, the CRC32C of the payload and the payload itself:
+ * the number of entries it holds and then the entries (product fields, then reviews).
+ * A block of length zero ends the file.
+ * <br>
+ * Blocks are written through one channel from a reused buffer and are checked
+ * and decoded independently, so a snapshot can be restored on several cores.
+ * @version 4.0
+ * @author saade
+ **/
+final class SnapshotFile {
+    private static final int MAGIC = 0x504D5331;
+    private static final int VERSION = 1;
+    private static final int BLOCK = 1 << 20;
+    private static final int BLOCK_HEADER = 2 * Integer.BYTES;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * @return the number of entries written
+     */
+    static int write(Path file, Iterator<CatalogueEntry> entries) throws IOException {
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer block = ByteBuffer.allocateDirect(BLOCK * 2);
+            block.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(channel, block);
+            block.clear().position(BLOCK_HEADER + Integer.BYTES);
+            int blockEntries = 0;
+            ByteBuffer entry = ByteBuffer.allocate(BLOCK);
+            while (entries.hasNext()) {
+                entry = encode(entries.next(), entry.clear());
+                entry.flip();
+                if (blockEntries > 0 && block.position() + entry.remaining() > BLOCK) {
+                    flush(channel, block, blockEntries);
+                    blockEntries = 0;
+                }
+                if (block.remaining() < entry.remaining()) {
+                    block = ByteBuffer.allocateDirect(BLOCK_HEADER + Integer.BYTES + entry.remaining())
+                            .position(BLOCK_HEADER + Integer.BYTES);
+                }
+                block.put(entry);
+                blockEntries++;
+                count++;
+            }
+            if (blockEntries > 0) {
+                flush(channel, block, blockEntries);
+            }
+            block.clear().putInt(0).putInt(0).flip();
+            writeFully(channel, block);
+            channel.force(false);
+        }
+        return count;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer block, int entries) throws IOException {
+        int length = block.position() - BLOCK_HEADER;
+        block.putInt(BLOCK_HEADER, entries);
+        CRC32C crc = new CRC32C();
+        crc.update(block.slice(BLOCK_HEADER, length));
+        block.putInt(0, length).putInt(Integer.BYTES, (int) crc.getValue()).flip();
+        writeFully(channel, block);
+        block.clear().position(BLOCK_HEADER + Integer.BYTES);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer encode(CatalogueEntry entry, ByteBuffer out) {
+        while (true) {
+            try {
+                Product product = entry.product();
+                out.put(product instanceof Food ? (byte) 'F' : (byte) 'D');
+                out.putInt(product.getId());
+                putBytes(out, product.getName().getBytes(StandardCharsets.UTF_8));
+                out.putInt(product.getPrice().scale());
+                putBytes(out, product.getPrice().unscaledValue().toByteArray());
+                out.put((byte) product.getRating().ordinal());
+                if (product instanceof Food food) {
+                    out.putLong(food.getBestBefore().toEpochDay());
+                }
+                out.putInt(entry.reviews().size());
+                for (Review review : entry.reviews()) {
+                    out.put((byte) review.rating().ordinal());
+                    putBytes(out, review.comment().getBytes(StandardCharsets.UTF_8));
+                }
+                return out;
+            } catch (BufferOverflowException e) {
+                out = ByteBuffer.allocate(out.capacity() * 2);
+            }
+        }
+    }
+
+    private static void putBytes(ByteBuffer out, byte[] bytes) {
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    /**
+     * Reads a snapshot and checks its header.
+     * <br>
+     * The file is read into the heap rather than mapped: a mapping stays open until it is
+     * garbage collected, and meanwhile the file cannot be deleted on Windows.
+     * @return the payload of every block, in file order, ready for {@link #decode decode}
+     * @throws IOException if the file is not a snapshot of this schema version or is truncated
+     */
+    static List<ByteBuffer> blocks(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot larger than 2GB: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("truncated snapshot: " + file);
+                }
+            }
+            buffer.flip();
+            if (buffer.limit() < 2 * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("not a snapshot file: " + file);
+            }
+            if (buffer.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("unsupported snapshot version " + buffer.getInt(Integer.BYTES));
+            }
+            List<ByteBuffer> blocks = new ArrayList<>();
+            int pos = 2 * Integer.BYTES;
+            while (true) {
+                if (pos + BLOCK_HEADER > buffer.limit()) {
+                    throw new IOException("truncated snapshot: " + file);
+                }
+                int length = buffer.getInt(pos);
+                if (length == 0) {
+                    return blocks;
+                }
+                if (length < 0 || pos + BLOCK_HEADER + length > buffer.limit()) {
+                    throw new IOException("truncated snapshot: " + file);
+                }
+                blocks.add(buffer.slice(pos, BLOCK_HEADER + length));
+                pos += BLOCK_HEADER + length;
+            }
+        }
+    }
+
+    /**
+     * Checks and decodes one block returned by {@link #blocks blocks}, safe to call from several threads.
+     * @throws IOException if the block does not match its checksum
+     */
+    static List<CatalogueEntry> decode(ByteBuffer block) throws IOException {
+        int length = block.getInt(0);
+        CRC32C crc = new CRC32C();
+        crc.update(block.slice(BLOCK_HEADER, length));
+        if ((int) crc.getValue() != block.getInt(Integer.BYTES)) {
+            throw new IOException("snapshot block checksum mismatch");
+        }
+        ByteBuffer in = block.slice(BLOCK_HEADER, length);
+        int entries = in.getInt();
+        List<CatalogueEntry> decoded = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            byte type = in.get();
+            int id = in.getInt();
+            String name = new String(getBytes(in), StandardCharsets.UTF_8);
+            int scale = in.getInt();
+            BigDecimal price = new BigDecimal(new BigInteger(getBytes(in)), scale);
+            Rating rating = Reatable.convert(in.get());
+            Product product = type == 'F'
+                    ? new Food(id, name, price, rating, LocalDate.ofEpochDay(in.getLong()))
+                    : new Drink(id, name, price, rating);
+            int size = in.getInt();
+            List<Review> reviews = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                Rating stars = Reatable.convert(in.get());
+                reviews.add(new Review(stars, new String(getBytes(in), StandardCharsets.UTF_8)));
+            }
+            decoded.add(new CatalogueEntry(product, reviews, RatingSummary.of(reviews)));
+        }
+        return decoded;
+    }
+
+    private static byte[] getBytes(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+}
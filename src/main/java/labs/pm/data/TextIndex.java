@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * {@code TextIndex} is an inverted index of the words of product names and review comments.
+ * <br>
+ * Text is split into runs of letters and digits, lower cased. Each word maps to the ids of the
+ * products whose name or reviews contain it, kept sorted and delta encoded as variable length
+ * integers, so most ids take one or two bytes. Ids added in increasing order are appended in
+ * place, others wait in a small unsorted buffer that is merged in once it grows to an eighth of
+ * the list, or when the list is read.
+ * <br>
+ * Products are never removed and names never change, so the index only grows until the
+ * catalogue is reloaded. Words are added under the lock of the product being changed and lists
+ * are locked one at a time, so queries never wait for more than one list update.
+ * @version 4.0
+ * @author saade
+ **/
+final class TextIndex {
+    private static final int[] NONE = new int[0];
+
+    private final ConcurrentSkipListMap<String, Postings> words = new ConcurrentSkipListMap<>();
+
+    /**
+     * @return an index of the names and reviews of {@code entries}
+     */
+    static TextIndex of(Collection<CatalogueEntry> entries) {
+        List<CatalogueEntry> byId = new ArrayList<>(entries);
+        byId.sort(Comparator.comparingInt(entry -> entry.product().getId()));
+        Map<String, Postings> built = new HashMap<>();
+        Set<String> terms = new HashSet<>();
+        for (CatalogueEntry entry : byId) {
+            tokenize(entry.product().getName(), terms);
+            for (Review review : entry.reviews()) {
+                tokenize(review.comment(), terms);
+            }
+            int id = entry.product().getId();
+            for (String term : terms) {
+                built.computeIfAbsent(term, key -> new Postings()).add(id);
+            }
+            terms.clear();
+        }
+        TextIndex index = new TextIndex();
+        index.words.putAll(built);
+        return index;
+    }
+
+    /**
+     * Indexes the name and reviews of a product, e.g. while the catalogue is loaded in parallel.
+     */
+    void add(CatalogueEntry entry) {
+        Set<String> terms = new HashSet<>();
+        tokenize(entry.product().getName(), terms);
+        for (Review review : entry.reviews()) {
+            tokenize(review.comment(), terms);
+        }
+        for (String term : terms) {
+            postings(term).add(entry.product().getId());
+        }
+    }
+
+    /**
+     * Indexes the words of {@code text} for product {@code id}.
+     */
+    void add(int id, String text) {
+        for (String term : tokens(text)) {
+            postings(term).add(id);
+        }
+    }
+
+    private Postings postings(String term) {
+        Postings postings = words.get(term);
+        return postings != null ? postings : words.computeIfAbsent(term, key -> new Postings());
+    }
+
+    /**
+     * @return the lower cased runs of letters and digits of {@code text}, each once
+     */
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new HashSet<>();
+        tokenize(text, tokens);
+        return tokens;
+    }
+
+    private static void tokenize(String text, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the products matching a query.
+     * <br>
+     * Words are all required, {@code OR} separates alternatives and a word ending with
+     * {@code *} matches every word starting with it, e.g. {@code "lemon tea OR coff*"}.
+     * @return the ids of the matching products, sorted
+     */
+    int[] search(String query) {
+        int[] found = NONE;
+        List<String> alternative = new ArrayList<>();
+        for (String word : (query + " OR").trim().split("\\s+")) {
+            if (!word.equals("OR")) {
+                alternative.add(word);
+            } else if (!alternative.isEmpty()) {
+                found = union(found, all(alternative));
+                alternative.clear();
+            }
+        }
+        return found;
+    }
+
+    /*
+     * Intersects the shortest lists first, and decodes the others only as far as needed to check
+     * the ids found so far.
+     */
+    private int[] all(List<String> query) {
+        List<Postings> exact = new ArrayList<>();
+        List<int[]> prefixed = new ArrayList<>();
+        for (String word : query) {
+            boolean prefix = word.endsWith("*");
+            for (String term : tokens(prefix ? word.substring(0, word.length() - 1) : word)) {
+                if (prefix) {
+                    prefixed.add(startingWith(term));
+                } else if (words.containsKey(term)) {
+                    exact.add(words.get(term));
+                } else {
+                    return NONE;
+                }
+            }
+        }
+        if (exact.isEmpty() && prefixed.isEmpty()) {
+            return NONE;
+        }
+        prefixed.sort(Comparator.comparingInt(ids -> ids.length));
+        exact.sort(Comparator.comparingInt(Postings::count));
+        int[] found = prefixed.isEmpty() ? exact.remove(0).ids() : prefixed.get(0);
+        for (int i = 1; i < prefixed.size() && found.length > 0; i++) {
+            found = intersection(found, prefixed.get(i));
+        }
+        for (int i = 0; i < exact.size() && found.length > 0; i++) {
+            found = exact.get(i).retain(found);
+        }
+        return found;
+    }
+
+    private int[] startingWith(String prefix) {
+        ConcurrentNavigableMap<String, Postings> matches = words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        int[] found = NONE;
+        for (Postings postings : matches.values()) {
+            found = union(found, postings.ids());
+        }
+        return found;
+    }
+
+    private static int[] intersection(int[] a, int[] b) {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                both[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] either = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                either[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                either[n++] = b[j++];
+            } else {
+                either[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            either[n++] = a[i++];
+        }
+        while (j < b.length) {
+            either[n++] = b[j++];
+        }
+        return Arrays.copyOf(either, n);
+    }
+
+    /**
+     * @return words indexed
+     */
+    int size() {
+        return words.size();
+    }
+
+    /**
+     * @return bytes of the encoded id lists
+     */
+    long bytes() {
+        return words.values().stream().mapToLong(Postings::bytes).sum();
+    }
+
+    /*
+     * Sorted distinct ids, each stored as its difference to the previous one, seven bits per byte,
+     * the high bit set on all but the last byte of a number.
+     */
+    private static final class Postings {
+        private byte[] packed = new byte[4];
+        private int size;
+        private int count;
+        private int last;
+        private int[] pending = NONE;
+        private int waiting;
+
+        synchronized void add(int id) {
+            if (count > 0 && id == last || waiting > 0 && pending[waiting - 1] == id) {
+                return;
+            }
+            if (waiting == 0 && (count == 0 || id > last)) {
+                append(id);
+                return;
+            }
+            if (waiting == pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(8, waiting * 2));
+            }
+            pending[waiting++] = id;
+            if (waiting >= Math.max(32, count >>> 3)) {
+                merge();
+            }
+        }
+
+        synchronized int[] ids() {
+            merge();
+            return decode();
+        }
+
+        /**
+         * @return the ids of {@code sorted} in this list
+         */
+        synchronized int[] retain(int[] sorted) {
+            merge();
+            int[] kept = new int[Math.min(sorted.length, count)];
+            int n = 0;
+            long value = Integer.MIN_VALUE;
+            int position = 0;
+            int j = 0;
+            for (int i = 0; i < count && j < sorted.length; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = packed[position++];
+                    delta |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += delta;
+                while (j < sorted.length && sorted[j] < value) {
+                    j++;
+                }
+                if (j < sorted.length && sorted[j] == value) {
+                    kept[n++] = sorted[j++];
+                }
+            }
+            return Arrays.copyOf(kept, n);
+        }
+
+        synchronized int count() {
+            return count + waiting;
+        }
+
+        synchronized long bytes() {
+            return size + 4L * waiting;
+        }
+
+        private void append(int id) {
+            long delta = count == 0 ? (long) id - Integer.MIN_VALUE : (long) id - last;
+            if (size + 5 > packed.length) {
+                packed = Arrays.copyOf(packed, Math.max(size + 5, size + (size >> 1)));
+            }
+            while (delta >= 0x80) {
+                packed[size++] = (byte) (delta | 0x80);
+                delta >>>= 7;
+            }
+            packed[size++] = (byte) delta;
+            last = id;
+            count++;
+        }
+
+        private int[] decode() {
+            int[] ids = new int[count];
+            long value = Integer.MIN_VALUE;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = packed[position++];
+                    delta |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += delta;
+                ids[i] = (int) value;
+            }
+            return ids;
+        }
+
+        private void merge() {
+            if (waiting == 0) {
+                return;
+            }
+            int[] added = Arrays.copyOf(pending, waiting);
+            Arrays.sort(added);
+            int[] ids = union(decode(), distinct(added));
+            packed = new byte[Math.max(4, size + 5 * added.length)];
+            size = 0;
+            count = 0;
+            for (int id : ids) {
+                append(id);
+            }
+            packed = Arrays.copyOf(packed, size);
+            pending = NONE;
+            waiting = 0;
+        }
+
+        private static int[] distinct(int[] sorted) {
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, n);
+        }
+    }
+}
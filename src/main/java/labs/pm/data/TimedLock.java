@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import jdk.jfr.EventType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * {@code TimedLock} measures how long threads wait for a lock and how long they hold it.
+ * <br>
+ * Every acquisition is counted and a sample of them is timed, at the rate of the wait and hold
+ * {@link LatencyStats}. Hold times are measured from the outermost acquisition by a thread to
+ * its matching release. While {@link LockStallEvent}s are enabled in a flight recording every
+ * wait is timed, and one longer than the stall threshold is committed as an event.
+ * @version 4.0
+ * @author saade
+ **/
+final class TimedLock implements Lock {
+    private static final EventType STALL = EventType.getEventType(LockStallEvent.class);
+
+    private final Lock lock;
+    private final String name;
+    private final LatencyStats wait;
+    private final LatencyStats hold;
+    private final long stallNanos;
+    /*
+     * per thread: reentrant acquisitions so far, and when the outermost one completed or 0 if not timed
+     */
+    private final ThreadLocal<long[]> held = ThreadLocal.withInitial(() -> new long[2]);
+
+    TimedLock(Lock lock, String name, LatencyStats wait, LatencyStats hold, long stallNanos) {
+        this.lock = lock;
+        this.name = name;
+        this.wait = wait;
+        this.hold = hold;
+        this.stallNanos = stallNanos;
+    }
+
+    /**
+     * @return when the wait started, or 0 if it is not timed
+     */
+    private long waiting() {
+        return wait.sample() || STALL.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    private void acquired(long start) {
+        if (start == 0) {
+            wait.count();
+        } else {
+            long waited = System.nanoTime() - start;
+            wait.record(waited);
+            if (waited >= stallNanos) {
+                LockStallEvent event = new LockStallEvent();
+                if (event.isEnabled()) {
+                    event.lock = name;
+                    event.wait = waited;
+                    event.commit();
+                }
+            }
+        }
+        long[] state = held.get();
+        if (state[0]++ == 0) {
+            state[1] = hold.sample() ? System.nanoTime() : 0;
+        }
+    }
+
+    @Override
+    public void lock() {
+        long start = waiting();
+        lock.lock();
+        acquired(start);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        long start = waiting();
+        lock.lockInterruptibly();
+        acquired(start);
+    }
+
+    @Override
+    public boolean tryLock() {
+        long start = waiting();
+        if (lock.tryLock()) {
+            acquired(start);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long start = waiting();
+        if (lock.tryLock(time, unit)) {
+            acquired(start);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void unlock() {
+        long[] state = held.get();
+        if (state[0] > 0 && --state[0] == 0) {
+            if (state[1] == 0) {
+                hold.count();
+            } else {
+                hold.record(System.nanoTime() - state[1]);
+            }
+        }
+        lock.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return lock.newCondition();
+    }
+}
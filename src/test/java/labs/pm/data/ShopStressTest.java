@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2025. Lorem ipsum dolor sit amet, consectetur adipiscing elit.
+ * Morbi non lorem porttitor neque feugiat blandit. Ut vitae ipsum eget quam lacinia accumsan.
+ * Etiam sed turpis ac ipsum condimentum fringilla. Maecenas magna.
+ * Proin dapibus sapien vel ante. Aliquam erat volutpat. Pellentesque sagittis ligula eget metus.
+ * Vestibulum commodo. Ut rhoncus gravida arcu.
+ */
+
+package labs.pm.data;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress test of {@link ProductManager} under the workload of the {@code Shop} clients:
+ * threads reviewing products and printing their reports, while others list the catalogue.
+ * <br>
+ * Every review is counted per product and rating as it is made, then the reviews, ratings,
+ * id index and rating index of the catalogue are checked against those counts.
+ * The throughput of the same workload by thread count is measured by the
+ * {@code ShopScaling} run of the benchmarks module.
+ * <br>
+ * {@link ProductManager} is a singleton, so this is the only test loading a catalogue.
+ * @version 4.0
+ * @author saade
+ **/
+class ShopStressTest {
+    private static final int PRODUCTS = 200;
+    private static final int CLIENTS = 8;
+    private static final int REVIEWS = 400;
+    private static final String COMMENT = "Stress review";
+
+    private static ProductManager pm;
+
+    @BeforeAll
+    static void loadEmptyCatalogue() throws IOException {
+        Path folder = Files.createTempDirectory("pm-stress");
+        Files.createDirectories(folder.resolve("data"));
+        Files.createDirectories(folder.resolve("reports"));
+        System.setProperty("data.folder", folder.resolve("data").toString());
+        System.setProperty("reports.folder", folder.resolve("reports").toString());
+        System.setProperty("temp.folder", folder.resolve("temp").toString());
+        System.setProperty("review.log.compact.minutes", "0");
+        pm = ProductManager.getInstance();
+        for (int id = 1; id <= PRODUCTS; id++) {
+            BigDecimal price = BigDecimal.valueOf(100 + id, 2);
+            if (id % 2 == 0) {
+                pm.createProduct(id, "Stress food " + id, price, Rating.NOT_RATED, LocalDate.now().plusDays(id % 5));
+            } else {
+                pm.createProduct(id, "Stress drink " + id, price, Rating.NOT_RATED);
+            }
+        }
+    }
+
+    @Test
+    void concurrentClientsKeepTheCatalogueConsistent() throws Exception {
+        AtomicIntegerArray reviewed = new AtomicIntegerArray((PRODUCTS + 1) * Rating.values().length);
+        List<String> languages = List.copyOf(ProductManager.getSupportedLanguages());
+        ConcurrentLinkedQueue<String> listingErrors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS + 1);
+        try {
+            Future<?> lister = executor.submit(() -> {
+                while (running.get()) {
+                    StringWriter out = new StringWriter();
+                    pm.printProducts(product -> true, Comparator.comparing(Product::getRating), 0,
+                            Integer.MAX_VALUE, "en-GB", out);
+                    long lines = out.toString().lines().count();
+                    if (lines != PRODUCTS) {
+                        listingErrors.add("listed " + lines + " products");
+                    }
+                    pm.getDiscounts("en-GB");
+                }
+                return null;
+            });
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                int client = c;
+                clients.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(client);
+                    started.await();
+                    for (int i = 0; i < REVIEWS; i++) {
+                        int id = random.nextInt(PRODUCTS) + 1;
+                        Rating rating = Rating.values()[random.nextInt(1, Rating.values().length)];
+                        String language = languages.get(random.nextInt(languages.size()));
+                        pm.getDiscounts(language);
+                        Product product = pm.reviewProduct(id, rating, COMMENT + " " + client + "-" + i);
+                        assertEquals(id, product.getId());
+                        reviewed.incrementAndGet(id * Rating.values().length + rating.ordinal());
+                        if (i % 20 == 0) {
+                            Path report = pm.printProductReport(id, language, "Client" + client).join();
+                            assertTrue(Files.exists(report));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            started.countDown();
+            for (Future<?> client : clients) {
+                client.get();
+            }
+            running.set(false);
+            lister.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(listingErrors.isEmpty(), () -> String.join(", ", Set.copyOf(listingErrors)));
+
+        int total = 0;
+        for (int id = 1; id <= PRODUCTS; id++) {
+            List<Review> expected = new ArrayList<>();
+            for (Rating rating : Rating.values()) {
+                for (int n = reviewed.get(id * Rating.values().length + rating.ordinal()); n > 0; n--) {
+                    expected.add(new Review(rating, COMMENT));
+                }
+            }
+            total += expected.size();
+            Product product = pm.findProduct(id);
+            assertEquals(id, product.getId());
+            assertEquals(RatingSummary.of(expected).getRating(), product.getRating(), "rating of " + id);
+            String report = new String(pm.getProductReport(id, "en-GB"), StandardCharsets.UTF_8);
+            assertEquals(expected.size(), report.lines().filter(line -> line.contains(COMMENT)).count(),
+                    "reviews of " + id);
+        }
+        assertEquals(CLIENTS * REVIEWS, total);
+
+        for (Rating rating : Rating.values()) {
+            Set<Integer> indexed = pm.findProducts(new ProductQuery.RatedAtLeast(rating)).stream()
+                    .map(Product::getId)
+                    .collect(Collectors.toSet());
+            Set<Integer> expected = IntStream.rangeClosed(1, PRODUCTS)
+                    .filter(id -> {
+                        try {
+                            return pm.findProduct(id).getRating().ordinal() >= rating.ordinal();
+                        } catch (ProductManagerException e) {
+                            throw new AssertionError(e);
+                        }
+                    })
+                    .boxed()
+                    .collect(Collectors.toSet());
+            assertEquals(expected, indexed, "products rated at least " + rating);
+        }
+    }
+}